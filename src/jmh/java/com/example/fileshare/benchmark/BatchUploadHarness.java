@@ -0,0 +1,123 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.FileshareApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Starts one node and shares a folder of small files twice: one multipart
+ * upload per file, back to back, and a single batch request carrying them
+ * all. Batch parts are encrypted one per core, so compare runs on machines
+ * with different core counts.
+ *
+ * java -cp target/test-classes:... BatchUploadHarness 200 16384 10
+ */
+public class BatchUploadHarness {
+
+    private static final int PORT = 18090;
+    private static final String BOUNDARY = "fileshare-batch-harness";
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int fileSize = args.length > 1 ? Integer.parseInt(args[1]) : 16 * 1024;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FileshareApplication.class).run(
+                "--server.port=" + PORT,
+                "--logging.level.root=WARN",
+                "--fileshare.batch.max-files=" + files);
+
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://localhost:" + PORT + "/api/checking";
+            List<byte[]> payloads = new ArrayList<>(files);
+            for (int i = 0; i < files; i++) {
+                byte[] payload = new byte[fileSize];
+                ThreadLocalRandom.current().nextBytes(payload);
+                payloads.add(payload);
+            }
+            System.out.printf("%d files of %d bytes, %d cores%n",
+                    files, fileSize, Runtime.getRuntime().availableProcessors());
+
+            // Warm up both paths before measuring
+            for (int i = 0; i < 3; i++) {
+                sequential(client, base, payloads);
+                batch(client, base, payloads);
+            }
+
+            long sequentialNanos = 0;
+            long batchNanos = 0;
+            for (int i = 0; i < rounds; i++) {
+                sequentialNanos += sequential(client, base, payloads);
+                batchNanos += batch(client, base, payloads);
+            }
+            report("sequential", sequentialNanos / rounds, files, fileSize);
+            report("batch     ", batchNanos / rounds, files, fileSize);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static long sequential(HttpClient client, String base, List<byte[]> payloads) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < payloads.size(); i++) {
+            HttpResponse<String> response = client.send(
+                    multipart(base + "/error", "file", payloads.subList(i, i + 1)),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Upload failed: " + response.body());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        client.send(HttpRequest.newBuilder(URI.create(base + "/clear"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+        return elapsed;
+    }
+
+    private static long batch(HttpClient client, String base, List<byte[]> payloads) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(
+                multipart(base + "/error/batch", "files", payloads),
+                HttpResponse.BodyHandlers.ofString());
+        long elapsed = System.nanoTime() - start;
+        if (response.statusCode() != 200 || !response.body().contains("\"failed\":0")) {
+            throw new IllegalStateException("Batch failed: " + response.body());
+        }
+        client.send(HttpRequest.newBuilder(URI.create(base + "/clear"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+        return elapsed;
+    }
+
+    private static HttpRequest multipart(String url, String field, List<byte[]> payloads) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < payloads.size(); i++) {
+            body.writeBytes(("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + field + "\"; filename=\"file-" + i + ".bin\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            body.writeBytes(payloads.get(i));
+            body.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static void report(String label, long nanos, int files, int fileSize) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%s: %.1f ms per folder, %.0f files/s, %.1f MB/s%n", label,
+                nanos / 1e6, files / seconds, (files * (double) fileSize / 1e6) / seconds);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.cluster.ClusterRing;
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.service.CompressionService;
+import com.example.fileshare.service.DedupService;
+import com.example.fileshare.service.EncryptionService;
+import com.example.fileshare.service.ExpiryScheduler;
+import com.example.fileshare.service.InMemoryStorageService;
+import com.example.fileshare.service.MessageBroadcaster;
+import com.example.fileshare.service.MessageService;
+import com.example.fileshare.service.SegmentWorkers;
+import com.example.fileshare.service.StorageBudget;
+import com.example.fileshare.service.TrafficStats;
+import com.example.fileshare.storage.CiphertextStore;
+import com.example.fileshare.storage.HeapCiphertextStore;
+import com.example.fileshare.storage.OffHeapCiphertextStore;
+import com.example.fileshare.storage.SlabAllocator;
+import com.example.fileshare.storage.SpillStore;
+import com.example.fileshare.storage.TieredCiphertextStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Wires services by hand so benchmarks run without a Spring context
+ */
+final class BenchmarkServices {
+
+    private BenchmarkServices() {
+    }
+
+    static FileshareProperties properties() {
+        FileshareProperties properties = new FileshareProperties();
+        properties.getBudget().setMaxBytes(DataSize.ofGigabytes(64));
+        properties.getStorage().setMaxOffHeap(DataSize.ofGigabytes(8));
+        return properties;
+    }
+
+    static CiphertextStore ciphertextStore(FileshareProperties properties) {
+        FileshareProperties.Storage storage = properties.getStorage();
+        if (storage.getBackend() == FileshareProperties.Backend.OFF_HEAP) {
+            return new OffHeapCiphertextStore(new SlabAllocator(
+                    EncryptionService.SEGMENT_SIZE + EncryptionService.SEGMENT_OVERHEAD,
+                    storage.getSlabSize().toBytes(),
+                    storage.getMaxOffHeap().toBytes()
+            ));
+        }
+        return new HeapCiphertextStore();
+    }
+
+    /**
+     * Memory store backed by a spill tier in a fresh temp directory
+     */
+    static TieredCiphertextStore tieredStore(FileshareProperties properties) throws IOException {
+        return new TieredCiphertextStore(ciphertextStore(properties), new SpillStore(
+                Files.createTempDirectory("fileshare-bench-spill"),
+                properties.getSpill().getSegmentSize().toBytes(),
+                properties.getSpill().getMaxDisk().toBytes()
+        ));
+    }
+
+    static InMemoryStorageService storageService(FileshareProperties properties) {
+        return storageService(properties, ciphertextStore(properties));
+    }
+
+    static InMemoryStorageService storageService(FileshareProperties properties, CiphertextStore ciphertextStore) {
+        return storageService(properties, ciphertextStore, new StorageBudget(properties));
+    }
+
+    static InMemoryStorageService storageService(FileshareProperties properties, CiphertextStore ciphertextStore,
+                                                 StorageBudget storageBudget) {
+        return new InMemoryStorageService(
+                new EncryptionService(properties),
+                new CompressionService(properties),
+                new DedupService(properties),
+                ciphertextStore,
+                storageBudget,
+                new ExpiryScheduler(),
+                new TrafficStats(),
+                new ClusterRing(properties),
+                new SegmentWorkers(properties),
+                properties
+        );
+    }
+
+    static MessageService messageService(FileshareProperties properties) {
+        return new MessageService(
+                new ExpiryScheduler(),
+                new MessageBroadcaster(new ObjectMapper().findAndRegisterModules(), properties)
+        );
+    }
+}
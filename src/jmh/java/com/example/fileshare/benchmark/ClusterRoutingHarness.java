@@ -0,0 +1,114 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.FileshareApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts a three-node cluster in one JVM and compares downloads served by
+ * the owning node with downloads that enter through another node and are
+ * proxied to the owner.
+ *
+ * java -cp target/test-classes:... ClusterRoutingHarness 200 4194304
+ */
+public class ClusterRoutingHarness {
+
+    private static final Pattern FILE_ID = Pattern.compile("\"fileId\":\"([^\"]+)\"");
+    private static final int[] PORTS = {18081, 18082, 18083};
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int fileSize = args.length > 1 ? Integer.parseInt(args[1]) : 4 * 1024 * 1024;
+
+        List<String> nodes = new ArrayList<>();
+        for (int port : PORTS) {
+            nodes.add("http://localhost:" + port);
+        }
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        for (String node : nodes) {
+            // Command-line arguments, so they win over application.properties
+            contexts.add(new SpringApplicationBuilder(FileshareApplication.class).run(
+                    "--server.port=" + URI.create(node).getPort(),
+                    "--logging.level.root=WARN",
+                    "--fileshare.cluster.enabled=true",
+                    "--fileshare.cluster.self=" + node,
+                    "--fileshare.cluster.nodes=" + String.join(",", nodes)));
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            byte[] payload = new byte[fileSize];
+            ThreadLocalRandom.current().nextBytes(payload);
+
+            String owner = nodes.get(0);
+            String entry = nodes.get(1);
+            // Warm up both paths before measuring
+            measure(client, payload, owner, owner, rounds / 4);
+            measure(client, payload, owner, entry, rounds / 4);
+
+            report("direct ", measure(client, payload, owner, owner, rounds), fileSize);
+            report("proxied", measure(client, payload, owner, entry, rounds), fileSize);
+        } finally {
+            contexts.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    /**
+     * Upload to the owner (IDs are allocated on the receiving node), then
+     * time only the download through the entry node
+     */
+    private static List<Long> measure(HttpClient client, byte[] payload, String owner,
+                                      String entry, int rounds) throws Exception {
+        List<Long> latencies = new ArrayList<>(rounds);
+        for (int i = 0; i < rounds; i++) {
+            HttpResponse<String> upload = client.send(HttpRequest.newBuilder(URI.create(owner + "/api/checking/error/stream"))
+                    .header("Content-Type", "application/octet-stream")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = FILE_ID.matcher(upload.body());
+            if (!matcher.find()) {
+                throw new IllegalStateException("Upload failed: " + upload.body());
+            }
+
+            long start = System.nanoTime();
+            HttpResponse<byte[]> download = client.send(
+                    HttpRequest.newBuilder(URI.create(entry + "/api/checking/stream/" + matcher.group(1))).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            latencies.add(System.nanoTime() - start);
+            if (download.statusCode() != 200 || download.body().length != payload.length) {
+                throw new IllegalStateException("Download failed: " + download.statusCode());
+            }
+        }
+        Collections.sort(latencies);
+        return latencies;
+    }
+
+    private static void report(String label, List<Long> sorted, int fileSize) {
+        long total = 0;
+        for (long latency : sorted) {
+            total += latency;
+        }
+        double megabytesPerSecond = (sorted.size() * (double) fileSize / 1e6) / (total / 1e9);
+        System.out.printf("%s: p50 %.2f ms, p99 %.2f ms, %.1f MB/s%n", label,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), megabytesPerSecond);
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.size() - 1, Math.ceil(quantile * sorted.size()) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.service.InMemoryStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload and download cost with compression off and on, over a mixed corpus.
+ * Average time per 4MB file; the stored size per corpus is printed at teardown
+ * so the CPU cost can be read against the bytes saved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class CompressionBenchmark {
+
+    private static final int FILE_SIZE = 4 * 1024 * 1024;
+    private static final String[] WORDS = {
+            "the", "file", "is", "encrypted", "before", "it", "leaves", "memory", "and", "deleted",
+            "after", "download", "segment", "key", "server", "client", "share", "once", "secure", "transfer"
+    };
+
+    @Param({"TEXT", "CSV", "JSON", "RANDOM"})
+    private String corpus;
+
+    @Param({"false", "true"})
+    private boolean compression;
+
+    private InMemoryStorageService storageService;
+    private byte[] payload;
+    private EncryptedFile storedFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        FileshareProperties properties = BenchmarkServices.properties();
+        properties.getCompression().setEnabled(compression);
+        storageService = BenchmarkServices.storageService(properties);
+
+        payload = generate(corpus, new Random(42));
+        storedFile = storageService.retrieveFile(storageService.storeFile(fileName(), new ByteArrayInputStream(payload)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%s compression=%s: %s, stored %d of %d bytes (%.1f%%)%n",
+                corpus, compression, storedFile.getCodec(), storedFile.getCiphertext().sizeInBytes(),
+                payload.length, 100.0 * storedFile.getCiphertext().sizeInBytes() / payload.length);
+        storageService.clearAll();
+    }
+
+    @Benchmark
+    public void upload() throws Exception {
+        storageService.deleteFile(storageService.storeFile(fileName(), new ByteArrayInputStream(payload)));
+    }
+
+    @Benchmark
+    public void download() throws Exception {
+        storageService.decryptTo(storedFile, OutputStream.nullOutputStream());
+    }
+
+    private String fileName() {
+        return "bench." + corpus.toLowerCase();
+    }
+
+    private static byte[] generate(String corpus, Random random) {
+        if ("RANDOM".equals(corpus)) {
+            byte[] data = new byte[FILE_SIZE];
+            random.nextBytes(data);
+            return data;
+        }
+
+        StringBuilder text = new StringBuilder(FILE_SIZE + 256);
+        for (int row = 0; text.length() < FILE_SIZE; row++) {
+            switch (corpus) {
+                case "CSV" -> text.append(row).append(',')
+                        .append(2024 + random.nextInt(3)).append('-').append(1 + random.nextInt(12)).append(',')
+                        .append(WORDS[random.nextInt(WORDS.length)]).append(',')
+                        .append(random.nextInt(100_000) / 100.0).append('\n');
+                case "JSON" -> text.append("{\"id\":").append(row)
+                        .append(",\"name\":\"").append(WORDS[random.nextInt(WORDS.length)])
+                        .append("\",\"size\":").append(random.nextInt(1 << 24))
+                        .append(",\"active\":").append(random.nextBoolean()).append("},\n");
+                default -> {
+                    for (int i = 0; i < 12; i++) {
+                        text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                    }
+                    text.append(".\n");
+                }
+            }
+        }
+        byte[] data = new byte[FILE_SIZE];
+        System.arraycopy(text.toString().getBytes(StandardCharsets.US_ASCII), 0, data, 0, FILE_SIZE);
+        return data;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.service.InMemoryStorageService;
+import com.example.fileshare.storage.CiphertextStore;
+import com.example.fileshare.storage.TieredCiphertextStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-decrypt download (/stream) vs raw ciphertext download (/raw).
+ * Throughput in downloads per second; multiply by fileSize for bytes/s.
+ * SPILLED serves the raw path via FileChannel.transferTo from the segment file.
+ * The sink copies into a fixed buffer like the container's output buffer,
+ * so every byte is actually moved once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:MaxDirectMemorySize=8g"})
+public class DownloadBenchmark {
+
+    @Param({"HEAP", "OFF_HEAP", "SPILLED"})
+    private String tier;
+
+    @Param({"1048576", "15728640"})
+    private int fileSize;
+
+    private InMemoryStorageService storageService;
+    private EncryptedFile storedFile;
+    private final OutputStream sink = new ContainerBufferSink();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        FileshareProperties properties = BenchmarkServices.properties();
+        properties.getStorage().setBackend("SPILLED".equals(tier)
+                ? FileshareProperties.Backend.HEAP
+                : FileshareProperties.Backend.valueOf(tier));
+
+        CiphertextStore store = "SPILLED".equals(tier)
+                ? BenchmarkServices.tieredStore(properties)
+                : BenchmarkServices.ciphertextStore(properties);
+        storageService = BenchmarkServices.storageService(properties, store);
+
+        byte[] payload = new byte[fileSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        String fileId = storageService.storeFile("bench.bin", new ByteArrayInputStream(payload));
+        storedFile = storageService.retrieveFile(fileId);
+
+        if (store instanceof TieredCiphertextStore tiered) {
+            tiered.spillOldest(Long.MAX_VALUE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storageService.clearAll();
+    }
+
+    @Benchmark
+    public void serverDecrypt() throws Exception {
+        storageService.decryptTo(storedFile, sink);
+    }
+
+    @Benchmark
+    public void rawCiphertext() throws Exception {
+        storageService.transferCiphertext(storedFile, sink);
+    }
+
+    private static final class ContainerBufferSink extends OutputStream {
+
+        private final byte[] buffer = new byte[8 * 1024];
+        private int position;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) {
+            while (length > 0) {
+                int n = Math.min(length, buffer.length - position);
+                System.arraycopy(data, offset, buffer, position, n);
+                position = (position + n) % buffer.length;
+                offset += n;
+                length -= n;
+            }
+        }
+    }
+}
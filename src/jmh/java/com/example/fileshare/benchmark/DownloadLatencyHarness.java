@@ -0,0 +1,161 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.service.InMemoryStorageService;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time to first byte and heap per download: the buffered path
+ * (decryptFile into one array, then write it) against the streaming path
+ * (decryptTo, one segment at a time). Each round runs the given number of
+ * downloads at once; peak heap is the rise of the heap pools' peak usage
+ * over the round, allocation is counted per downloading thread.
+ * Sizes are capped by the 15MB upload limit, so 500MB cannot be stored.
+ *
+ * java -Xmx4g -cp target/test-classes:... DownloadLatencyHarness 1048576,15728640 8 20
+ */
+public class DownloadLatencyHarness {
+
+    private static final int SINK_BUFFER = 8 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1024 * 1024, (int) InMemoryStorageService.MAX_FILE_SIZE};
+        int concurrent = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        InMemoryStorageService storage = BenchmarkServices.storageService(BenchmarkServices.properties());
+        for (int size : sizes) {
+            byte[] payload = new byte[size];
+            ThreadLocalRandom.current().nextBytes(payload);
+            List<EncryptedFile> files = new ArrayList<>();
+            for (int i = 0; i < concurrent; i++) {
+                files.add(storage.retrieveFile(storage.storeFile("file.bin", new ByteArrayInputStream(payload))));
+            }
+
+            for (boolean streaming : new boolean[]{false, true}) {
+                Result result = new Result();
+                for (int round = -3; round < rounds; round++) {
+                    // Warm-up rounds are run but not counted
+                    runRound(storage, files, streaming, round < 0 ? new Result() : result);
+                }
+                result.report(String.format("%5.1fMB %-9s", size / (1024.0 * 1024), streaming ? "streaming" : "buffered"),
+                        concurrent);
+            }
+            files.forEach(file -> storage.deleteFile(file.getFileId()));
+        }
+    }
+
+    private static void runRound(InMemoryStorageService storage, List<EncryptedFile> files,
+                                 boolean streaming, Result result) throws Exception {
+        System.gc();
+        long baseline = heapUsed(false);
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        List<Thread> downloads = new ArrayList<>();
+        for (EncryptedFile file : files) {
+            downloads.add(Thread.ofPlatform().start(() -> {
+                com.sun.management.ThreadMXBean threads =
+                        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+                FirstByteSink sink = new FirstByteSink();
+                long started = System.nanoTime();
+                try {
+                    if (streaming) {
+                        storage.decryptTo(file, sink);
+                    } else {
+                        byte[] plaintext = storage.decryptFile(file);
+                        sink.write(plaintext);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                result.add(sink.firstByteAt - started, System.nanoTime() - started,
+                        threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+            }));
+        }
+        for (Thread download : downloads) {
+            download.join();
+        }
+        result.addPeak(heapUsed(true) - baseline);
+    }
+
+    private static long heapUsed(boolean peak) {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += peak ? pool.getPeakUsage().getUsed() : pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Copies into a small buffer like the container's, noting the first write
+     */
+    private static final class FirstByteSink extends OutputStream {
+
+        private final byte[] buffer = new byte[SINK_BUFFER];
+        private long firstByteAt;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) {
+            if (firstByteAt == 0 && length > 0) {
+                firstByteAt = System.nanoTime();
+            }
+            while (length > 0) {
+                int chunk = Math.min(length, buffer.length);
+                System.arraycopy(data, offset, buffer, 0, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+    }
+
+    private static final class Result {
+
+        private final List<Long> firstByte = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> total = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> allocated = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> peaks = new ArrayList<>();
+
+        void add(long firstByteNanos, long totalNanos, long allocatedBytes) {
+            firstByte.add(firstByteNanos);
+            total.add(totalNanos);
+            allocated.add(allocatedBytes);
+        }
+
+        void addPeak(long bytes) {
+            peaks.add(bytes);
+        }
+
+        void report(String label, int concurrent) {
+            System.out.printf("%s: TTFB p50 %7.2f ms, total p50 %7.2f ms, allocated %7.2f MB/download, "
+                            + "peak heap +%6.1f MB for %d at once%n",
+                    label, median(firstByte) / 1e6, median(total) / 1e6, median(allocated) / 1e6,
+                    median(peaks) / 1e6, concurrent);
+        }
+
+        private static double median(List<Long> values) {
+            List<Long> sorted = new ArrayList<>(values);
+            Collections.sort(sorted);
+            return sorted.isEmpty() ? 0 : sorted.get(sorted.size() / 2);
+        }
+    }
+}
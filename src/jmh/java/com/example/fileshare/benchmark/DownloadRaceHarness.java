@@ -0,0 +1,152 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.service.InMemoryStorageService;
+import com.example.fileshare.service.StorageBudget;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stress test for exactly-once delivery under FIRST_GET.
+ * Each round, many threads race to download the same few files while a
+ * deleter removes some of them. A file may be delivered at most once,
+ * every file that was not deleted must be delivered, and the budget must
+ * come back to zero (a double wipe would credit it twice).
+ *
+ * java -cp target/test-classes:... DownloadRaceHarness 256 500
+ */
+public class DownloadRaceHarness {
+
+    private static final int FILES_PER_ROUND = 16;
+    private static final int FILE_SIZE = 200 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        FileshareProperties properties = BenchmarkServices.properties();
+        StorageBudget budget = new StorageBudget(properties);
+        InMemoryStorageService storage = BenchmarkServices.storageService(
+                properties, BenchmarkServices.ciphertextStore(properties), budget);
+
+        byte[] payload = new byte[FILE_SIZE];
+        ThreadLocalRandom.current().nextBytes(payload);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        long deliveries = 0;
+        long deletions = 0;
+        int violations = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            List<String> fileIds = new ArrayList<>();
+            for (int i = 0; i < FILES_PER_ROUND; i++) {
+                fileIds.add(storage.storeFile("race.bin", new ByteArrayInputStream(payload)));
+            }
+
+            AtomicIntegerArray delivered = new AtomicIntegerArray(FILES_PER_ROUND);
+            AtomicIntegerArray deleted = new AtomicIntegerArray(FILES_PER_ROUND);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threads + 1);
+
+            for (int t = 0; t < threads; t++) {
+                int first = t % FILES_PER_ROUND;
+                pool.submit(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < FILES_PER_ROUND; i++) {
+                            int index = (first + i) % FILES_PER_ROUND;
+                            if (download(storage, fileIds.get(index))) {
+                                delivered.incrementAndGet(index);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            // Deleter races the downloaders for a quarter of the files
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    for (int index = 0; index < FILES_PER_ROUND; index += 4) {
+                        if (storage.deleteFile(fileIds.get(index))) {
+                            deleted.set(index, 1);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+
+            start.countDown();
+            done.await();
+
+            for (int index = 0; index < FILES_PER_ROUND; index++) {
+                int count = delivered.get(index);
+                deliveries += count;
+                deletions += deleted.get(index);
+                // Deleted files may or may not have been delivered first - never twice
+                if (count > 1 || (count == 0 && deleted.get(index) == 0)) {
+                    violations++;
+                    System.out.printf("round %d file %d delivered %d times%n", round, index, count);
+                }
+            }
+            if (storage.getFileCount() != 0 || budget.getUsedBytes() != 0) {
+                violations++;
+                System.out.printf("round %d left %d files, %d budget bytes%n",
+                        round, storage.getFileCount(), budget.getUsedBytes());
+            }
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        System.out.printf("%d threads, %d rounds: %d deliveries, %d deleted first, %d violations%n",
+                threads, rounds, deliveries, deletions, violations);
+        System.exit(violations == 0 ? 0 : 1);
+    }
+
+    /**
+     * Same sequence as GET /api/checking/stream/{id}
+     */
+    private static boolean download(InMemoryStorageService storage, String fileId) {
+        EncryptedFile file = lookup(storage, fileId);
+        if (file == null || !storage.claimDownload(file)) {
+            return false;
+        }
+
+        boolean completed = false;
+        try {
+            storage.decryptTo(file, OutputStream.nullOutputStream());
+            completed = true;
+        } catch (Exception e) {
+            // Deleted underneath us - not a delivery
+        } finally {
+            storage.finishDownload(fileId, file, 0, file.getSize(), completed);
+        }
+        return completed;
+    }
+
+    private static EncryptedFile lookup(InMemoryStorageService storage, String fileId) {
+        try {
+            return storage.retrieveFile(fileId);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
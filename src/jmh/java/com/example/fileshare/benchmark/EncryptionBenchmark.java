@@ -0,0 +1,88 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.service.EncryptionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * AES-GCM throughput and allocation per payload size and JCE provider
+ * (run with -prof gc for allocation rate)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    @Param({"1024", "65536", "15728640"})
+    private int payloadSize;
+
+    @Param({"", "BC"})
+    private String provider;
+
+    private EncryptionService encryptionService;
+    private byte[] payload;
+    private byte[] key;
+    private byte[] iv;
+    private byte[] encrypted;
+    private byte[] chunk;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        FileshareProperties properties = new FileshareProperties();
+        properties.getCrypto().setProvider(provider);
+        encryptionService = new EncryptionService(properties);
+
+        payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        key = encryptionService.generateKey();
+        iv = encryptionService.generateIV();
+        encrypted = encryptionService.encrypt(payload, key, iv);
+        chunk = new byte[EncryptionService.SEGMENT_SIZE];
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws Exception {
+        // Fresh IV per call - GCM refuses key+IV reuse on encrypt
+        return encryptionService.encrypt(payload, key, encryptionService.generateIV());
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws Exception {
+        return encryptionService.decrypt(encrypted, key, iv);
+    }
+
+    @Benchmark
+    public void encryptSegmented(Blackhole blackhole) throws Exception {
+        int segmentSize = EncryptionService.SEGMENT_SIZE;
+        long segments = Math.max(1, (payloadSize + segmentSize - 1) / segmentSize);
+        byte[] fileIv = encryptionService.generateIV();
+
+        for (long index = 0; index < segments; index++) {
+            int offset = (int) (index * segmentSize);
+            int length = Math.min(segmentSize, payloadSize - offset);
+            System.arraycopy(payload, offset, chunk, 0, length);
+            blackhole.consume(encryptionService.encryptSegment(
+                    chunk, length, key, fileIv, index, index == segments - 1));
+        }
+    }
+
+    @Benchmark
+    public byte[] generateKey() {
+        return encryptionService.generateKey();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.service.ExpiryScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one expiry pass with 1M live items, ~1/3600 of them due:
+ * the old full-map scan versus one timing-wheel tick.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ExpiryBenchmark {
+
+    private static final long LIFETIME_MILLIS = 3_600_000;
+
+    @Param({"1000000"})
+    private int liveItems;
+
+    private Map<Integer, Instant> scanStore;
+    private ExpiryScheduler wheel;
+    private long clock;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        long start = System.currentTimeMillis();
+        clock = start;
+
+        // Deadlines spread evenly over one lifetime, like steady traffic
+        scanStore = new ConcurrentHashMap<>();
+        wheel = new ExpiryScheduler();
+        for (int i = 0; i < liveItems; i++) {
+            Instant deadline = Instant.ofEpochMilli(start + 1000 + (LIFETIME_MILLIS * i) / liveItems);
+            scanStore.put(i, deadline);
+            wheel.schedule(deadline, new Renewing(deadline.toEpochMilli()));
+        }
+    }
+
+    /**
+     * Before: every pass walks the whole map
+     */
+    @Benchmark
+    public int fullScan() {
+        Instant now = Instant.now();
+        scanStore.entrySet().removeIf(entry -> now.isAfter(entry.getValue()));
+        return scanStore.size();
+    }
+
+    /**
+     * Expired items are replaced by new ones, keeping the wheel at steady state
+     */
+    private final class Renewing implements Runnable {
+
+        private long deadline;
+
+        Renewing(long deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            deadline += LIFETIME_MILLIS;
+            wheel.schedule(Instant.ofEpochMilli(deadline), this);
+        }
+    }
+
+    /**
+     * After: every pass visits one bucket
+     */
+    @Benchmark
+    public long wheelTick() {
+        clock += 1000;
+        wheel.advanceTo(clock);
+        return wheel.getPendingCount();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.service.ExpiryScheduler;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One hour of simulated time with N live items whose deadlines are spread
+ * evenly over the hour. The old cleanup scans the whole map every 300 s;
+ * the wheel is advanced once per second, as its scheduled tick does.
+ * Reports expiry latency (time from deadline to eviction) and the real
+ * cost of each pass. ExpiryBenchmark measures the per-pass cost under JMH.
+ *
+ * java -Xmx4g -cp target/test-classes:... ExpiryLatencyHarness 1000000
+ */
+public class ExpiryLatencyHarness {
+
+    private static final long LIFETIME_MILLIS = 3_600_000;
+    private static final long SCAN_INTERVAL_MILLIS = 300_000;
+    private static final long TICK_MILLIS = 1000;
+
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        // Whole seconds, so a deadline on a tick is not rounded up to the next one
+        long start = (System.currentTimeMillis() / TICK_MILLIS + 1) * TICK_MILLIS;
+        long[] deadlines = new long[items];
+        for (int i = 0; i < items; i++) {
+            deadlines[i] = start + 1 + (LIFETIME_MILLIS * i) / items;
+        }
+
+        System.out.printf("%d items, deadlines over %d s%n", items, LIFETIME_MILLIS / 1000);
+        scan(deadlines, start);
+        wheel(deadlines, start);
+    }
+
+    /**
+     * Before: a full-map pass every 5 minutes
+     */
+    private static void scan(long[] deadlines, long start) {
+        Map<Integer, Long> store = new ConcurrentHashMap<>();
+        for (int i = 0; i < deadlines.length; i++) {
+            store.put(i, deadlines[i]);
+        }
+
+        long[] latencies = new long[deadlines.length];
+        long[] passes = new long[(int) (LIFETIME_MILLIS / SCAN_INTERVAL_MILLIS) + 1];
+        int pass = 0;
+        for (long now = start + SCAN_INTERVAL_MILLIS; pass < passes.length; now += SCAN_INTERVAL_MILLIS) {
+            long clock = now;
+            long began = System.nanoTime();
+            store.entrySet().removeIf(entry -> {
+                if (clock < entry.getValue()) {
+                    return false;
+                }
+                latencies[entry.getKey()] = clock - entry.getValue();
+                return true;
+            });
+            passes[pass++] = System.nanoTime() - began;
+        }
+        report("scan every 300 s", latencies, passes, store.size());
+    }
+
+    /**
+     * After: one wheel bucket per second
+     */
+    private static void wheel(long[] deadlines, long start) {
+        ExpiryScheduler scheduler = new ExpiryScheduler();
+        scheduler.advanceTo(start);
+        long[] latencies = new long[deadlines.length];
+        long[] clock = {start};
+        for (int i = 0; i < deadlines.length; i++) {
+            int item = i;
+            scheduler.schedule(Instant.ofEpochMilli(deadlines[i]),
+                    () -> latencies[item] = clock[0] - deadlines[item]);
+        }
+
+        long[] passes = new long[(int) ((LIFETIME_MILLIS + TICK_MILLIS) / TICK_MILLIS)];
+        for (int pass = 0; pass < passes.length; pass++) {
+            clock[0] += TICK_MILLIS;
+            long began = System.nanoTime();
+            scheduler.advanceTo(clock[0]);
+            passes[pass] = System.nanoTime() - began;
+        }
+        report("wheel tick every 1 s", latencies, passes, scheduler.getPendingCount());
+    }
+
+    private static void report(String name, long[] latencies, long[] passes, long left) {
+        long[] sortedLatencies = latencies.clone();
+        Arrays.sort(sortedLatencies);
+        long[] sortedPasses = passes.clone();
+        Arrays.sort(sortedPasses);
+        long total = Arrays.stream(passes).sum();
+
+        System.out.println(name);
+        System.out.printf("  expiry latency: p50 %.1f s, p99 %.1f s, max %.1f s (%d not evicted)%n",
+                percentile(sortedLatencies, 0.50) / 1000.0,
+                percentile(sortedLatencies, 0.99) / 1000.0,
+                percentile(sortedLatencies, 1.0) / 1000.0,
+                left);
+        System.out.printf("  pass cost: %d passes, mean %.3f ms, max %.3f ms, %.1f ms per simulated hour%n",
+                passes.length, total / (double) passes.length / 1_000_000.0,
+                percentile(sortedPasses, 1.0) / 1_000_000.0, total / 1_000_000.0);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)];
+    }
+}
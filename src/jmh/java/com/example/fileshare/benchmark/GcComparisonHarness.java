@@ -0,0 +1,117 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.service.InMemoryStorageService;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GC cost of holding many pending files, heap backend against off-heap.
+ * Each backend runs in its own JVM with the same heap and a GC log. The
+ * child stores N pending files, then churns uploads, downloads and
+ * deletes for a while, and reports collections, GC time and the heap
+ * left after a full collection. StorageBenchmark has the per-operation
+ * cost of each backend.
+ *
+ * java -cp target/test-classes:... GcComparisonHarness 500 1048576 30
+ */
+public class GcComparisonHarness {
+
+    private static final String HEAP_SIZE = "-Xmx2g";
+    private static final int CHURN_FILE_SIZE = 256 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].startsWith("child:")) {
+            child(FileshareProperties.Backend.valueOf(args[0].substring("child:".length())),
+                    Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+
+        int pendingFiles = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int fileSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024 * 1024;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        System.out.printf("%d pending files of %d bytes, %d s churn, %s, %d cores%n",
+                pendingFiles, fileSize, seconds, HEAP_SIZE, Runtime.getRuntime().availableProcessors());
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (FileshareProperties.Backend backend : FileshareProperties.Backend.values()) {
+            List<String> command = new ArrayList<>(List.of(java, HEAP_SIZE, "-XX:MaxDirectMemorySize=4g",
+                    "-Xlog:gc:file=target/gc-" + backend.name().toLowerCase() + ".log",
+                    "-cp", System.getProperty("java.class.path"),
+                    GcComparisonHarness.class.getName(),
+                    "child:" + backend, String.valueOf(pendingFiles), String.valueOf(fileSize),
+                    String.valueOf(seconds)));
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException(backend + " run failed");
+            }
+        }
+    }
+
+    private static void child(FileshareProperties.Backend backend, int pendingFiles, int fileSize,
+                              int seconds) throws Exception {
+        FileshareProperties properties = BenchmarkServices.properties();
+        properties.getStorage().setBackend(backend);
+        InMemoryStorageService storageService = BenchmarkServices.storageService(properties);
+
+        byte[] payload = new byte[fileSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        for (int i = 0; i < pendingFiles; i++) {
+            storageService.storeFile("pending.bin", new ByteArrayInputStream(payload));
+        }
+
+        byte[] churn = new byte[CHURN_FILE_SIZE];
+        ThreadLocalRandom.current().nextBytes(churn);
+        long collections = collections();
+        long gcMillis = gcMillis();
+        long operations = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            String fileId = storageService.storeFile("churn.bin", new ByteArrayInputStream(churn));
+            storageService.decryptTo(storageService.retrieveFile(fileId), OutputStream.nullOutputStream());
+            storageService.deleteFile(fileId);
+            operations++;
+        }
+        collections = collections() - collections;
+        gcMillis = gcMillis() - gcMillis;
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed();
+
+        System.out.println(backend);
+        System.out.printf("  churn: %d store/download/delete cycles (%.0f per s)%n",
+                operations, operations / (double) seconds);
+        System.out.printf("  GC: %d collections, %d ms total, %.2f ms mean, %.1f%% of wall time%n",
+                collections, gcMillis, collections == 0 ? 0 : gcMillis / (double) collections,
+                100.0 * gcMillis / (seconds * 1000.0));
+        System.out.printf("  heap after full GC: %.1f MB (%d pending files held)%n",
+                retained / (1024.0 * 1024.0), storageService.getFileCount());
+        storageService.clearAll();
+    }
+
+    private static long collections() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.service.IdAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File ID allocation with the 3-character space 90% full and 64 threads.
+ * Each op claims an ID and frees it again so occupancy stays put.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class IdAllocatorBenchmark {
+
+    private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int SPACE = 62 * 62 * 62;
+
+    private final Map<String, Boolean> store = new ConcurrentHashMap<>();
+    private final IdAllocator allocator = new IdAllocator(3, 8);
+    private final SecureRandom sharedRandom = new SecureRandom();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        int target = (int) (SPACE * 0.9);
+        for (int i = 0; i < target; i++) {
+            store.put(legacyId(i), Boolean.TRUE);
+        }
+    }
+
+    @Benchmark
+    public String allocator() {
+        String id = allocator.allocate(store::size, candidate -> store.putIfAbsent(candidate, Boolean.TRUE) == null);
+        store.remove(id);
+        return id;
+    }
+
+    /**
+     * Previous scheme: shared SecureRandom, fixed length, containsKey then put
+     */
+    @Benchmark
+    public String legacy() {
+        String id;
+        do {
+            StringBuilder builder = new StringBuilder(3);
+            for (int i = 0; i < 3; i++) {
+                builder.append(CHARACTERS.charAt(sharedRandom.nextInt(CHARACTERS.length())));
+            }
+            id = builder.toString();
+        } while (store.containsKey(id));
+        store.put(id, Boolean.TRUE);
+        store.remove(id);
+        return id;
+    }
+
+    private static String legacyId(int value) {
+        char[] id = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            id[i] = CHARACTERS.charAt(value % 62);
+            value /= 62;
+        }
+        return new String(id);
+    }
+}
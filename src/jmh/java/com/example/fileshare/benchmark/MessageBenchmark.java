@@ -0,0 +1,72 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.model.Message;
+import com.example.fileshare.service.MessageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message board hot paths at 10K - 1M stored messages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class MessageBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int messageCount;
+
+    private MessageService messageService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        messageService = BenchmarkServices.messageService(BenchmarkServices.properties());
+        for (int i = 0; i < messageCount; i++) {
+            messageService.sendMessage("message " + i, "sender-" + (i % 100));
+        }
+    }
+
+    @Benchmark
+    public Message sendMessage() {
+        return messageService.sendMessage("hello", "bench");
+    }
+
+    /**
+     * Several senders at once - contention on ID generation and publishing
+     */
+    @Benchmark
+    @Threads(8)
+    public Message sendMessageContended() {
+        return messageService.sendMessage("hello", "bench");
+    }
+
+    @Benchmark
+    public List<Message> getAllMessages() {
+        return messageService.getAllMessages();
+    }
+
+    /**
+     * What a polling client pays when a handful of messages are new
+     */
+    @Benchmark
+    public List<Message> getMessagesAfter() {
+        return messageService.getMessagesAfter(messageService.getLastSequence() - 10, 100);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.model.Message;
+import com.example.fileshare.service.CompactMessageStore;
+import com.example.fileshare.service.ExpiryScheduler;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Retained heap of the message board at N messages: one Message object
+ * per message in an ID map plus a sequence log with a wheel entry each
+ * (the previous layout), against the compact store with one wheel entry
+ * per second. Sizes come from JOL object graph walks.
+ *
+ * java -Xmx4g -cp target/test-classes:... MessageFootprintHarness 1000000
+ */
+public class MessageFootprintHarness {
+
+    private static final int SENDERS = 1000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Instant start = Instant.now();
+
+        Map<String, Message> byId = new ConcurrentHashMap<>();
+        ConcurrentSkipListMap<Long, Message> log = new ConcurrentSkipListMap<>();
+        ExpiryScheduler objectWheel = new ExpiryScheduler();
+        for (int i = 1; i <= count; i++) {
+            Instant timestamp = timestampOf(start, i, count);
+            Message message = Message.builder()
+                    .messageId(idOf(i))
+                    .sequence(i)
+                    .content(contentOf(i))
+                    .senderId(senderOf(i))
+                    .timestamp(timestamp)
+                    .expiresAt(timestamp.plus(60, ChronoUnit.MINUTES))
+                    .build();
+            byId.put(message.getMessageId(), message);
+            log.put(message.getSequence(), message);
+            objectWheel.schedule(message.getExpiresAt(), () -> byId.remove(message.getMessageId(), message));
+        }
+        long objects = GraphLayout.parseInstance(byId, log, objectWheel).totalSize();
+        report("objects", objects, count);
+        byId.clear();
+        log.clear();
+
+        CompactMessageStore store = new CompactMessageStore();
+        ExpiryScheduler compactWheel = new ExpiryScheduler();
+        long lastSecond = 0;
+        for (int i = 1; i <= count; i++) {
+            Instant timestamp = timestampOf(start, i, count);
+            Instant expiresAt = timestamp.plus(60, ChronoUnit.MINUTES);
+            store.add(idOf(i), i, contentOf(i), senderOf(i), timestamp.toEpochMilli(), expiresAt.toEpochMilli());
+            if (expiresAt.getEpochSecond() != lastSecond) {
+                lastSecond = expiresAt.getEpochSecond();
+                compactWheel.schedule(expiresAt, () -> store.expire(System.currentTimeMillis()));
+            }
+        }
+        long compact = GraphLayout.parseInstance(store, compactWheel).totalSize();
+        report("compact", compact, count);
+        System.out.printf("compact / objects = %.2f%n", (double) compact / objects);
+    }
+
+    /**
+     * Spread over the hour a message lives, like a steadily busy board
+     */
+    private static Instant timestampOf(Instant start, int i, int count) {
+        return start.plusMillis((long) i * 3_600_000L / count);
+    }
+
+    private static String idOf(int i) {
+        // Same alphabet and length as the service's 8-character IDs
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        char[] id = new char[8];
+        long value = (long) i * 0x9E3779B97F4A7C15L >>> 16;
+        for (int c = 0; c < id.length; c++) {
+            id[c] = alphabet.charAt((int) (value % alphabet.length()));
+            value /= alphabet.length();
+        }
+        return new String(id);
+    }
+
+    private static String contentOf(int i) {
+        return "Message number " + i + " on the board";
+    }
+
+    private static String senderOf(int i) {
+        return "sender-" + (i % SENDERS);
+    }
+
+    private static void report(String label, long bytes, int count) {
+        System.out.printf("%s: %.1f MB, %.0f bytes/message%n", label, bytes / 1e6, (double) bytes / count);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.service.EncryptionService;
+import com.example.fileshare.service.InMemoryStorageService;
+import com.example.fileshare.service.SegmentWindow;
+import com.example.fileshare.service.SegmentWorkers;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Segment encryption and decryption throughput against the number of
+ * segment workers. Large payloads (past the 15MB upload cap) go through a
+ * segment window directly; 15MB files go through the storage service, the
+ * way uploads and streamed downloads do.
+ *
+ * java -Xmx4g -cp target/test-classes:... ParallelCryptoHarness 1,2,4,8 104857600,1073741824
+ */
+public class ParallelCryptoHarness {
+
+    private static final int FILE_ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] workerCounts = args.length > 0 ? parse(args[0]) : new int[]{1, 2, 4, cores};
+        long[] sizes = args.length > 1
+                ? Arrays.stream(args[1].split(",")).mapToLong(Long::parseLong).toArray()
+                : new long[]{100L * 1024 * 1024, 1024L * 1024 * 1024};
+        System.out.printf("%d cores%n", cores);
+
+        for (long size : sizes) {
+            byte[] payload = new byte[Math.toIntExact(size)];
+            ThreadLocalRandom.current().nextBytes(payload);
+            for (int workers : workerCounts) {
+                try (SegmentWorkers segmentWorkers = new SegmentWorkers(properties(workers))) {
+                    EncryptionService encryptionService = new EncryptionService(properties(workers));
+                    // One untimed pass warms the cipher and the workers
+                    decrypt(segmentWorkers, encryptionService, encrypt(segmentWorkers, encryptionService, payload));
+
+                    long started = System.nanoTime();
+                    Sealed sealed = encrypt(segmentWorkers, encryptionService, payload);
+                    long encryptNanos = System.nanoTime() - started;
+                    started = System.nanoTime();
+                    long opened = decrypt(segmentWorkers, encryptionService, sealed);
+                    long decryptNanos = System.nanoTime() - started;
+                    if (opened != size) {
+                        throw new IllegalStateException("Decrypted " + opened + " of " + size + " bytes");
+                    }
+                    report(size / (1024 * 1024) + "MB", workers, size, encryptNanos, decryptNanos);
+                }
+            }
+        }
+
+        byte[] file = new byte[Math.toIntExact(InMemoryStorageService.MAX_FILE_SIZE)];
+        ThreadLocalRandom.current().nextBytes(file);
+        for (int workers : workerCounts) {
+            FileshareProperties properties = properties(workers);
+            InMemoryStorageService storage = BenchmarkServices.storageService(properties);
+            long encryptNanos = 0;
+            long decryptNanos = 0;
+            for (int round = -2; round < FILE_ROUNDS; round++) {
+                long started = System.nanoTime();
+                String fileId = storage.storeFile("file.bin", new ByteArrayInputStream(file));
+                long stored = System.nanoTime() - started;
+                EncryptedFile encryptedFile = storage.retrieveFile(fileId);
+                started = System.nanoTime();
+                storage.decryptTo(encryptedFile, OutputStream.nullOutputStream());
+                long read = System.nanoTime() - started;
+                storage.deleteFile(fileId);
+                if (round >= 0) {
+                    encryptNanos += stored;
+                    decryptNanos += read;
+                }
+            }
+            report("15MB file", workers, (long) file.length * FILE_ROUNDS, encryptNanos, decryptNanos);
+        }
+    }
+
+    private static FileshareProperties properties(int workers) {
+        FileshareProperties properties = BenchmarkServices.properties();
+        properties.getCrypto().setThreads(workers);
+        return properties;
+    }
+
+    /**
+     * Same layout as stored files: 64KB segments, index and last flag authenticated
+     */
+    private static Sealed encrypt(SegmentWorkers workers, EncryptionService encryptionService,
+                                  byte[] payload) throws Exception {
+        byte[] key = encryptionService.generateKey();
+        byte[] iv = encryptionService.generateIV();
+        List<byte[]> segments = new ArrayList<>();
+        SegmentWindow<byte[]> window = workers.window(segments::add);
+        int segmentCount = Math.max(1, (payload.length + EncryptionService.SEGMENT_SIZE - 1) / EncryptionService.SEGMENT_SIZE);
+        for (int index = 0; index < segmentCount; index++) {
+            int offset = index * EncryptionService.SEGMENT_SIZE;
+            int length = Math.min(EncryptionService.SEGMENT_SIZE, payload.length - offset);
+            long segmentIndex = index;
+            boolean last = index == segmentCount - 1;
+            window.submit(() -> encryptionService.encryptSegment(
+                    payload, offset, length, key, iv, segmentIndex, last), false);
+        }
+        window.finish();
+        return new Sealed(key, iv, segments);
+    }
+
+    private static long decrypt(SegmentWorkers workers, EncryptionService encryptionService,
+                                Sealed sealed) throws Exception {
+        long[] opened = {0};
+        SegmentWindow<byte[]> window = workers.window(plain -> opened[0] += plain.length);
+        int segmentCount = sealed.segments().size();
+        for (int index = 0; index < segmentCount; index++) {
+            byte[] segment = sealed.segments().get(index);
+            long segmentIndex = index;
+            boolean last = index == segmentCount - 1;
+            window.submit(() -> encryptionService.decryptSegment(
+                    segment, sealed.key(), sealed.iv(), segmentIndex, last), false);
+        }
+        window.finish();
+        return opened[0];
+    }
+
+    private static void report(String label, int workers, long bytes, long encryptNanos, long decryptNanos) {
+        System.out.printf("%-10s %2d workers: encrypt %7.1f MB/s, decrypt %7.1f MB/s%n", label, workers,
+                (bytes / 1e6) / (encryptNanos / 1e9), (bytes / 1e6) / (decryptNanos / 1e9));
+    }
+
+    private static int[] parse(String list) {
+        return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private record Sealed(byte[] key, byte[] iv, List<byte[]> segments) {
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.FileshareApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts one node with platform request threads, then one with virtual
+ * threads, and runs the same load on each: many slow downloaders hold
+ * request threads while a fast client measures latency of small requests.
+ * The clients run in the same process, so both modes share their overhead.
+ *
+ * java -cp target/test-classes:... SlowClientLoadHarness 300 30
+ */
+public class SlowClientLoadHarness {
+
+    private static final int PORT = 18096;
+
+    private static final Pattern FILE_ID = Pattern.compile("\"fileId\":\"([^\"]+)\"");
+    private static final int FILE_SIZE = 4 * 1024 * 1024;
+    private static final int SLOW_READ_CHUNK = 16 * 1024;
+    private static final long SLOW_READ_PAUSE_MILLIS = 100;
+
+    public static void main(String[] args) throws Exception {
+        int slowClients = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        System.out.printf("%d slow clients, %d s per mode, %d cores%n",
+                slowClients, seconds, Runtime.getRuntime().availableProcessors());
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            System.out.println(virtualThreads ? "Virtual threads" : "Platform threads");
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(FileshareApplication.class).run(
+                    "--server.port=" + PORT,
+                    // Slow downloads cut off at the end log aborts and timeouts
+                    "--logging.level.root=OFF",
+                    "--spring.threads.virtual.enabled=" + virtualThreads);
+            try {
+                run("http://localhost:" + PORT, slowClients, seconds);
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static void run(String baseUrl, int slowClients, int seconds) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        byte[] payload = new byte[FILE_SIZE];
+        ThreadLocalRandom.current().nextBytes(payload);
+
+        List<String> fileIds = new ArrayList<>();
+        for (int i = 0; i < slowClients; i++) {
+            HttpResponse<String> upload = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/checking/error/stream"))
+                    .header("Content-Type", "application/octet-stream")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = FILE_ID.matcher(upload.body());
+            if (matcher.find()) {
+                fileIds.add(matcher.group(1));
+            }
+        }
+        System.out.printf("  Uploaded %d files of %d bytes%n", fileIds.size(), FILE_SIZE);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService slow = Executors.newVirtualThreadPerTaskExecutor();
+        for (String fileId : fileIds) {
+            slow.submit(() -> slowDownload(client, baseUrl + "/api/checking/stream/" + fileId, deadline));
+        }
+
+        // Fast client: small requests back to back, latency per request
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService fast = Executors.newVirtualThreadPerTaskExecutor();
+        for (int worker = 0; worker < 16; worker++) {
+            fast.submit(() -> {
+                HttpRequest probe = HttpRequest.newBuilder(URI.create(baseUrl + "/api/checking/status")).build();
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    client.send(probe, HttpResponse.BodyHandlers.discarding());
+                    latencies.add(System.nanoTime() - start);
+                }
+                return null;
+            });
+        }
+
+        fast.shutdown();
+        fast.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        slow.shutdownNow();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("  Fast requests: %d (%.1f req/s)%n", sorted.size(), sorted.size() / (double) seconds);
+        System.out.printf("  p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    private static Void slowDownload(HttpClient client, String url, long deadline) throws Exception {
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        byte[] buffer = new byte[SLOW_READ_CHUNK];
+        try (InputStream in = response.body()) {
+            while (System.nanoTime() < deadline && in.read(buffer) >= 0) {
+                Thread.sleep(SLOW_READ_PAUSE_MILLIS);
+            }
+        }
+        return null;
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.size() - 1, Math.ceil(quantile * sorted.size()) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.service.EncryptionService;
+import com.example.fileshare.service.InMemoryStorageService;
+import com.example.fileshare.service.MessageService;
+import com.example.fileshare.service.SnapshotService;
+import com.example.fileshare.storage.CiphertextStore;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Fills a node, writes a snapshot and loads it into a fresh node,
+ * reporting write and restore throughput. Parts are written and loaded
+ * one per core, so compare runs on machines with different core counts.
+ *
+ * java -Xmx4g -cp target/test-classes:... SnapshotHarness 256 4194304 100000
+ */
+public class SnapshotHarness {
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int fileSize = args.length > 1 ? Integer.parseInt(args[1]) : 4 * 1024 * 1024;
+        int messages = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        FileshareProperties properties = BenchmarkServices.properties();
+        FileshareProperties.Snapshot settings = properties.getSnapshot();
+        byte[] key = new byte[32];
+        ThreadLocalRandom.current().nextBytes(key);
+        settings.setEnabled(true);
+        settings.setKey(Base64.getEncoder().encodeToString(key));
+        settings.setDirectory(Files.createTempDirectory("fileshare-bench-snapshot"));
+
+        byte[] payload = new byte[fileSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+
+        Node source = node(properties);
+        for (int i = 0; i < files; i++) {
+            source.storage().storeFile("file-" + i + ".bin", new ByteArrayInputStream(payload));
+        }
+        for (int i = 0; i < messages; i++) {
+            source.messages().sendMessage("message " + i, "sender-" + (i % 100));
+        }
+        System.out.printf("Stored %d files (%.1f MB) and %d messages, %d cores%n",
+                files, (double) files * fileSize / 1e6, messages, Runtime.getRuntime().availableProcessors());
+
+        long started = System.nanoTime();
+        source.snapshots().snapshot();
+        long snapshotBytes = source.snapshots().getLastSnapshotBytes();
+        report("write  ", System.nanoTime() - started, snapshotBytes);
+        source.storage().clearAll();
+        source.messages().clearAll();
+
+        Node target = node(properties);
+        started = System.nanoTime();
+        target.snapshots().restore();
+        report("restore", System.nanoTime() - started, snapshotBytes);
+        System.out.printf("Restored %d files and %d messages%n",
+                target.snapshots().getRestoredFiles(), target.snapshots().getRestoredMessages());
+
+        try (Stream<Path> listing = Files.walk(settings.getDirectory())) {
+            listing.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static Node node(FileshareProperties properties) {
+        CiphertextStore ciphertextStore = BenchmarkServices.ciphertextStore(properties);
+        InMemoryStorageService storage = BenchmarkServices.storageService(properties, ciphertextStore);
+        MessageService messages = BenchmarkServices.messageService(properties);
+        SnapshotService snapshots = new SnapshotService(
+                storage, messages, new EncryptionService(properties), ciphertextStore, properties);
+        return new Node(storage, messages, snapshots);
+    }
+
+    private static void report(String label, long nanos, long bytes) {
+        System.out.printf("%s: %.2f s, %.1f MB/s%n", label, nanos / 1e9, (bytes / 1e6) / (nanos / 1e9));
+    }
+
+    private record Node(InMemoryStorageService storage, MessageService messages, SnapshotService snapshots) {
+    }
+}
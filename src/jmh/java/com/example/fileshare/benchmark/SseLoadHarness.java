@@ -0,0 +1,233 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.FileshareApplication;
+import com.example.fileshare.service.MessageBroadcaster;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts one node and compares N browsers kept current by 3-second
+ * polling of /api/messages/all with N idle SSE subscribers, while one
+ * message is posted per second. Reports server requests per second and
+ * server CPU (request, SSE sender and scheduler threads only, so the
+ * in-process clients are not counted). Optionally adds clients that
+ * subscribe and never read, to show they are evicted while everyone
+ * else keeps receiving.
+ *
+ * java -cp target/test-classes:... SseLoadHarness 1000 30 20
+ */
+public class SseLoadHarness {
+
+    private static final int PORT = 18095;
+    private static final String BASE = "http://localhost:" + PORT + "/api/messages";
+    private static final String[] SERVER_THREADS = {"http-nio-", "sse-sender-", "scheduling-"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int stalled = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FileshareApplication.class).run(
+                "--server.port=" + PORT,
+                "--logging.level.root=WARN",
+                "--fileshare.messages.send-timeout=PT3S");
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        try {
+            System.out.printf("%d clients, %d s per phase, %d cores%n",
+                    clients, seconds, Runtime.getRuntime().availableProcessors());
+            polling(client, clients, seconds);
+            push(client, clients, seconds);
+            if (stalled > 0) {
+                stalledClients(client, context.getBean(MessageBroadcaster.class), stalled);
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Every client fetches the full list every 3 seconds, spread evenly
+     */
+    private static void polling(HttpClient client, int clients, int seconds) throws Exception {
+        LongAdder requests = new LongAdder();
+        HttpRequest poll = HttpRequest.newBuilder(URI.create(BASE + "/all")).build();
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        for (int i = 0; i < clients; i++) {
+            timer.scheduleAtFixedRate(() -> client.sendAsync(poll, HttpResponse.BodyHandlers.discarding())
+                            .thenRun(requests::increment),
+                    i * 3000L / clients, 3000, TimeUnit.MILLISECONDS);
+        }
+
+        Measurement measurement = measure(client, seconds, requests);
+        timer.shutdownNow();
+        report("polling", measurement);
+    }
+
+    /**
+     * Every client holds one SSE stream and only reads what is pushed
+     */
+    private static void push(HttpClient client, int clients, int seconds) throws Exception {
+        LongAdder events = new LongAdder();
+        List<CompletableFuture<?>> streams = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            streams.add(client.sendAsync(HttpRequest.newBuilder(URI.create(BASE + "/stream")).build(),
+                    HttpResponse.BodyHandlers.fromLineSubscriber(new EventCounter(events))));
+        }
+        // Wait until every stream got its ready event
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (events.sum() < clients && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        System.out.printf("%d of %d streams connected%n", events.sum(), clients);
+
+        events.reset();
+        Measurement measurement = measure(client, seconds, new LongAdder());
+        report("push   ", measurement);
+        System.out.printf("push    : %d events delivered (%d expected)%n", events.sum(), (long) clients * seconds);
+        streams.forEach(stream -> stream.cancel(true));
+    }
+
+    /**
+     * Stalled clients read nothing and advertise a tiny window; big
+     * messages fill their sockets until the send deadline drops them
+     */
+    private static void stalledClients(HttpClient client, MessageBroadcaster broadcaster, int stalled) throws Exception {
+        LongAdder events = new LongAdder();
+        CompletableFuture<?> healthy = client.sendAsync(HttpRequest.newBuilder(URI.create(BASE + "/stream")).build(),
+                HttpResponse.BodyHandlers.fromLineSubscriber(new EventCounter(events)));
+        List<Socket> sockets = new ArrayList<>();
+        for (int i = 0; i < stalled; i++) {
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(1024);
+            socket.connect(new InetSocketAddress("localhost", PORT));
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /api/messages/stream HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            sockets.add(socket);
+        }
+        Thread.sleep(1000);
+        long disconnectsBefore = broadcaster.getSlowDisconnects();
+
+        String content = "x".repeat(8 * 1024);
+        int posted = 0;
+        long started = System.nanoTime();
+        while (broadcaster.getSlowDisconnects() - disconnectsBefore < stalled
+                && System.nanoTime() - started < TimeUnit.SECONDS.toNanos(30)) {
+            post(client, content);
+            posted++;
+            Thread.sleep(20);
+        }
+        Thread.sleep(1000);
+        System.out.printf("stalled: %d dropped (%d stalled) after %.1f s, %d messages posted, healthy client got %d%n",
+                broadcaster.getSlowDisconnects() - disconnectsBefore, stalled,
+                (System.nanoTime() - started) / 1e9, posted, events.sum() - 1);
+
+        healthy.cancel(true);
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private static Measurement measure(HttpClient client, int seconds, LongAdder requests) throws Exception {
+        Thread.sleep(3000); // let the load settle
+        requests.reset();
+        long cpuBefore = serverCpuNanos();
+        long started = System.nanoTime();
+        for (int i = 0; i < seconds; i++) {
+            post(client, "message " + i);
+            requests.increment();
+            Thread.sleep(1000);
+        }
+        long elapsed = System.nanoTime() - started;
+        return new Measurement(requests.sum() / (elapsed / 1e9), (serverCpuNanos() - cpuBefore) / (double) elapsed);
+    }
+
+    private static void post(HttpClient client, String content) throws Exception {
+        client.send(HttpRequest.newBuilder(URI.create(BASE + "/send"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"content\":\"" + content + "\",\"senderId\":\"harness\"}"))
+                .build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static long serverCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info == null) {
+                continue;
+            }
+            for (String prefix : SERVER_THREADS) {
+                if (info.getThreadName().startsWith(prefix)) {
+                    total += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static void report(String label, Measurement measurement) {
+        System.out.printf("%s: %.1f requests/s, server CPU %.1f%% of one core%n",
+                label, measurement.requestsPerSecond(), measurement.cpuShare() * 100);
+    }
+
+    private record Measurement(double requestsPerSecond, double cpuShare) {
+    }
+
+    /**
+     * Counts SSE events by their event: line
+     */
+    private static final class EventCounter implements Flow.Subscriber<String> {
+
+        private final LongAdder events;
+
+        EventCounter(LongAdder events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("event:")) {
+                events.increment();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
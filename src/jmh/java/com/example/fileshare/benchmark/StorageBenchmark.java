@@ -0,0 +1,87 @@
+package com.example.fileshare.benchmark;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.service.InMemoryStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Store / retrieve / decrypt hot paths per storage backend.
+ * decryptFile is the buffered download path, decryptTo the streaming one;
+ * compare their gc.alloc.rate.norm for per-download heap cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:MaxDirectMemorySize=8g"})
+public class StorageBenchmark {
+
+    @Param({"HEAP", "OFF_HEAP"})
+    private FileshareProperties.Backend backend;
+
+    @Param({"1024", "1048576", "15728640"})
+    private int fileSize;
+
+    private InMemoryStorageService storageService;
+    private byte[] payload;
+    private String fileId;
+    private EncryptedFile storedFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        FileshareProperties properties = BenchmarkServices.properties();
+        properties.getStorage().setBackend(backend);
+        storageService = BenchmarkServices.storageService(properties);
+
+        payload = new byte[fileSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        fileId = storageService.storeFile("bench.bin", new ByteArrayInputStream(payload));
+        storedFile = storageService.retrieveFile(fileId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storageService.clearAll();
+    }
+
+    @Benchmark
+    public String storeFile() throws Exception {
+        String id = storageService.storeFile("bench.bin", new ByteArrayInputStream(payload));
+        storageService.deleteFile(id);
+        return id;
+    }
+
+    @Benchmark
+    public EncryptedFile retrieveFile() throws Exception {
+        return storageService.retrieveFile(fileId);
+    }
+
+    @Benchmark
+    public byte[] decryptFile() throws Exception {
+        return storageService.decryptFile(storedFile);
+    }
+
+    @Benchmark
+    public void decryptTo() throws Exception {
+        storageService.decryptTo(storedFile, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.fileshare.cluster;
+
+import com.example.fileshare.config.FileshareProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent-hash ring over the statically configured nodes.
+ * Each node is placed at many points so keys split evenly, and adding or
+ * removing a node only moves the keys next to its points. With cluster
+ * mode off the ring has just this node and owns everything.
+ */
+@Component
+public class ClusterRing {
+
+    private final List<String> nodes;
+    private final int selfIndex;
+    private final long[] points;      // Sorted positions on the ring
+    private final int[] pointOwners;  // Node index for each position
+
+    public ClusterRing(FileshareProperties properties) {
+        FileshareProperties.Cluster cluster = properties.getCluster();
+        if (!cluster.isEnabled()) {
+            this.nodes = List.of(cluster.getSelf());
+            this.selfIndex = 0;
+            this.points = new long[0];
+            this.pointOwners = new int[0];
+            return;
+        }
+
+        this.nodes = List.copyOf(cluster.getNodes());
+        this.selfIndex = nodes.indexOf(cluster.getSelf());
+        if (selfIndex < 0) {
+            throw new IllegalStateException("fileshare.cluster.self must be one of fileshare.cluster.nodes");
+        }
+
+        int virtualNodes = cluster.getVirtualNodes();
+        long[][] placed = new long[nodes.size() * virtualNodes][];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                placed[node * virtualNodes + v] = new long[]{hash(nodes.get(node) + "#" + v), node};
+            }
+        }
+        Arrays.sort(placed, (a, b) -> Long.compare(a[0], b[0]));
+
+        this.points = new long[placed.length];
+        this.pointOwners = new int[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            points[i] = placed[i][0];
+            pointOwners[i] = (int) placed[i][1];
+        }
+    }
+
+    /**
+     * Base URL of the node that owns the key
+     */
+    public String ownerOf(String key) {
+        return nodes.get(ownerIndex(key));
+    }
+
+    public boolean isLocal(String key) {
+        return ownerIndex(key) == selfIndex;
+    }
+
+    public boolean isClustered() {
+        return points.length > 0;
+    }
+
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    public String getSelf() {
+        return nodes.get(selfIndex);
+    }
+
+    private int ownerIndex(String key) {
+        if (points.length == 0) {
+            return selfIndex;
+        }
+        // First point clockwise from the key, wrapping past the end
+        int position = Arrays.binarySearch(points, hash(key));
+        if (position < 0) {
+            position = -position - 1;
+        }
+        return pointOwners[position == points.length ? 0 : position];
+    }
+
+    /**
+     * FNV-1a with a murmur finalizer - cheap, and spreads short IDs well
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.fileshare.cluster;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.dto.FileResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends requests for files and upload sessions to the node that owns them.
+ * Bodies are streamed both ways, never buffered. Forwarded requests carry a
+ * header signed with the cluster secret and are always served where they
+ * land, so a ring that differs between nodes cannot bounce a request around.
+ * A client cannot send that header itself: an unsigned or stale one is
+ * stripped and the request is routed like any other.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ClusterRoutingFilter extends OncePerRequestFilter {
+
+    public static final String FORWARDED_HEADER = "X-Fileshare-Forwarded";
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_SIZE = 32;
+
+    // How old a signed forward may be - bounds replay of a captured header
+    private static final long MAX_SKEW_SECONDS = 60;
+
+    // Requests addressed by a file ID or upload session ID
+    private static final List<Pattern> ROUTED_PATHS = List.of(
+            Pattern.compile("^/api/checking/(?:errors|stream|raw|check)/([^/]+)(?:/key)?$"),
+            Pattern.compile("^/api/checking/uploads/([^/]+)(?:/.*)?$")
+    );
+
+    // Hop-by-hop, or set by the HTTP client itself
+    private static final Set<String> SKIPPED_HEADERS = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "te", "trailer", "upgrade",
+            "proxy-connection", "host", "content-length", "expect", "http2-settings"
+    );
+
+    private final ClusterRing clusterRing;
+    private final ObjectMapper objectMapper;
+    private final Duration proxyTimeout;
+    private final HttpClient httpClient;
+    private final SecretKeySpec clusterSecret;
+
+    public ClusterRoutingFilter(ClusterRing clusterRing, ObjectMapper objectMapper, FileshareProperties properties) {
+        this.clusterRing = clusterRing;
+        this.objectMapper = objectMapper;
+        this.clusterSecret = clusterRing.isClustered() ? decodeSecret(properties.getCluster().getSecret()) : null;
+        this.proxyTimeout = properties.getCluster().getProxyTimeout();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getCluster().getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    private static SecretKeySpec decodeSecret(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            throw new IllegalStateException("fileshare.cluster.secret must be set when the cluster is enabled");
+        }
+        byte[] secret = Base64.getDecoder().decode(encoded.trim());
+        if (secret.length < MIN_SECRET_SIZE) {
+            throw new IllegalStateException("fileshare.cluster.secret must be at least 32 bytes, Base64 encoded");
+        }
+        return new SecretKeySpec(secret, MAC_ALGORITHM);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !clusterRing.isClustered() && request.getHeader(FORWARDED_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        if (request.getHeader(FORWARDED_HEADER) != null) {
+            if (clusterRing.isClustered() && isSignedByPeer(request)) {
+                chain.doFilter(request, response);
+                return;
+            }
+            request = new WithoutForwardedHeader(request);
+        }
+        if (!clusterRing.isClustered()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String key = routingKey(request.getRequestURI());
+        if (key == null || clusterRing.isLocal(key)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        proxy(clusterRing.ownerOf(key), request, response);
+    }
+
+    private static String routingKey(String path) {
+        for (Pattern pattern : ROUTED_PATHS) {
+            Matcher matcher = pattern.matcher(path);
+            if (matcher.matches()) {
+                return matcher.group(1);
+            }
+        }
+        return null;
+    }
+
+    private void proxy(String owner, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String query = request.getQueryString();
+        URI target = URI.create(owner + request.getRequestURI() + (query == null ? "" : "?" + query));
+
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(target)
+                .timeout(proxyTimeout)
+                .method(request.getMethod(), bodyOf(request))
+                .header(FORWARDED_HEADER, signedForward(request));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!SKIPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    forwarded.header(name, value);
+                }
+            }
+        }
+
+        HttpResponse<InputStream> answer;
+        try {
+            answer = httpClient.send(forwarded.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            unavailable(response);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unavailable(response);
+            return;
+        }
+
+        response.setStatus(answer.statusCode());
+        for (Map.Entry<String, List<String>> header : answer.headers().map().entrySet()) {
+            String name = header.getKey();
+            if (name.startsWith(":") || SKIPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                response.addHeader(name, value);
+            }
+        }
+        answer.headers().firstValueAsLong("content-length").ifPresent(response::setContentLengthLong);
+
+        try (InputStream body = answer.body()) {
+            body.transferTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Header value "sender timestamp mac", the MAC covering the sender, the
+     * time and the request line. The body is streamed and not covered.
+     */
+    private String signedForward(HttpServletRequest request) {
+        String sender = clusterRing.getSelf();
+        long timestamp = System.currentTimeMillis() / 1000;
+        byte[] mac = mac(sender, timestamp, request);
+        return sender + " " + timestamp + " " + Base64.getEncoder().encodeToString(mac);
+    }
+
+    private boolean isSignedByPeer(HttpServletRequest request) {
+        String[] parts = request.getHeader(FORWARDED_HEADER).split(" ");
+        if (parts.length != 3) {
+            return false;
+        }
+        long timestamp;
+        byte[] claimed;
+        try {
+            timestamp = Long.parseLong(parts[1]);
+            claimed = Base64.getDecoder().decode(parts[2]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (Math.abs(System.currentTimeMillis() / 1000 - timestamp) > MAX_SKEW_SECONDS) {
+            return false;
+        }
+        return MessageDigest.isEqual(mac(parts[0], timestamp, request), claimed);
+    }
+
+    private byte[] mac(String sender, long timestamp, HttpServletRequest request) {
+        String query = request.getQueryString();
+        String signed = sender + "\n" + timestamp + "\n" + request.getMethod() + "\n"
+                + request.getRequestURI() + (query == null ? "" : "?" + query);
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(clusterSecret);
+            return mac.doFinal(signed.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign forwarded request", e);
+        }
+    }
+
+    /**
+     * Stream the request body through, keeping its length when the client sent one
+     */
+    private static HttpRequest.BodyPublisher bodyOf(HttpServletRequest request) {
+        long length = request.getContentLengthLong();
+        if (length == 0 || (length < 0 && request.getHeader("Transfer-Encoding") == null)) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return request.getInputStream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return length > 0 ? HttpRequest.BodyPublishers.fromPublisher(stream, length) : stream;
+    }
+
+    private void unavailable(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.BAD_GATEWAY.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), FileResponse.error("Owning node unavailable"));
+    }
+
+    /**
+     * Hides a forwarded header the request could not vouch for
+     */
+    private static final class WithoutForwardedHeader extends HttpServletRequestWrapper {
+
+        WithoutForwardedHeader(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return FORWARDED_HEADER.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return FORWARDED_HEADER.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames());
+            names.removeIf(FORWARDED_HEADER::equalsIgnoreCase);
+            return Collections.enumeration(names);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.fileshare.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tunables under the "fileshare" prefix
+ */
+@Data
+@ConfigurationProperties(prefix = "fileshare")
+public class FileshareProperties {
+
+    private Storage storage = new Storage();
+    private Budget budget = new Budget();
+    private Messages messages = new Messages();
+    private Crypto crypto = new Crypto();
+    private Spill spill = new Spill();
+    private Download download = new Download();
+    private Compression compression = new Compression();
+    private Dedup dedup = new Dedup();
+    private Cluster cluster = new Cluster();
+    private Snapshot snapshot = new Snapshot();
+    private Batch batch = new Batch();
+
+    @Data
+    public static class Storage {
+
+        /**
+         * Where ciphertext lives: HEAP or OFF_HEAP
+         */
+        private Backend backend = Backend.HEAP;
+
+        /**
+         * Size of one direct-memory slab (off-heap backend)
+         */
+        private DataSize slabSize = DataSize.ofMegabytes(4);
+
+        /**
+         * Upper bound for all slabs together (off-heap backend)
+         */
+        private DataSize maxOffHeap = DataSize.ofGigabytes(1);
+    }
+
+    @Data
+    public static class Budget {
+
+        /**
+         * Total ciphertext plus in-flight uploads allowed in memory
+         */
+        private DataSize maxBytes = DataSize.ofGigabytes(2);
+
+        /**
+         * Bytes one client may upload concurrently (unset = no quota)
+         */
+        private DataSize perClientMaxBytes;
+
+        /**
+         * Retry-After hint sent with rejected uploads
+         */
+        private Duration retryAfter = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Messages {
+
+        /**
+         * Events buffered per SSE client before it counts as a slow consumer
+         */
+        private int subscriberBuffer = 256;
+
+        /**
+         * Concurrent SSE clients accepted by this node
+         */
+        private int maxSubscribers = 10000;
+
+        /**
+         * SSE connection lifetime; browsers reconnect automatically
+         */
+        private Duration streamTimeout = Duration.ofMinutes(30);
+
+        /**
+         * Threads writing SSE events, 0 = four per core (at least 16)
+         */
+        private int senderThreads = 0;
+
+        /**
+         * A client whose socket accepts no event for this long is disconnected
+         */
+        private Duration sendTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Crypto {
+
+        /**
+         * JCE provider for AES-GCM: empty = JDK default, "BC" = Bouncy Castle
+         */
+        private String provider = "";
+
+        /**
+         * Workers sealing and opening the segments of one file in parallel,
+         * shared by all uploads and downloads: 0 = one per core, 1 = on the request thread
+         */
+        private int threads = 0;
+
+        /**
+         * Segments of one file in flight at once (in order on the way out), 0 = twice the workers
+         */
+        private int window = 0;
+    }
+
+    @Data
+    public static class Spill {
+
+        /**
+         * Push cold ciphertext to disk under memory pressure (keys stay in RAM)
+         */
+        private boolean enabled = false;
+
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "fileshare-spill");
+
+        /**
+         * Size of one append-only segment file, at most 2GB (mapped as one buffer)
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(256);
+
+        /**
+         * Upper bound for all segment files together
+         */
+        private DataSize maxDisk = DataSize.ofGigabytes(10);
+
+        /**
+         * Start spilling above this share of the memory budget...
+         */
+        private double highWatermark = 0.8;
+
+        /**
+         * ...and stop once usage is back under this share
+         */
+        private double lowWatermark = 0.6;
+
+        /**
+         * Compact sealed segments whose live share drops below this
+         */
+        private double compactBelow = 0.5;
+    }
+
+    @Data
+    public static class Download {
+
+        /**
+         * When a downloaded file is deleted: FIRST_GET, ALL_RANGES or GRACE
+         */
+        private Completion completion = Completion.FIRST_GET;
+
+        /**
+         * How long a file stays after its first complete download (GRACE)
+         */
+        private Duration gracePeriod = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Compression {
+
+        /**
+         * Compress uploads before encryption when a sample of them shrinks
+         * (stored sizes then reveal how compressible a file is)
+         */
+        private boolean enabled = false;
+
+        /**
+         * Share the first chunk must shrink by for the file to be compressed
+         */
+        private double minSavings = 0.1;
+    }
+
+    @Data
+    public static class Dedup {
+
+        /**
+         * Store identical uploads once and share the ciphertext between their file IDs
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Cluster {
+
+        /**
+         * Spread files over several nodes by consistent hashing of their IDs
+         */
+        private boolean enabled = false;
+
+        /**
+         * This node's base URL, exactly as listed in nodes
+         */
+        private String self = "http://localhost:8080";
+
+        /**
+         * Base URLs of all nodes, this one included (same list on every node)
+         */
+        private List<String> nodes = new ArrayList<>();
+
+        /**
+         * Points per node on the ring - more points give a more even split
+         */
+        private int virtualNodes = 128;
+
+        /**
+         * Shared secret signing requests forwarded between nodes: at least
+         * 32 random bytes, Base64, the same on every node
+         */
+        private String secret;
+
+        /**
+         * Connect timeout towards other nodes
+         */
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        /**
+         * How long to wait for the owner's response headers
+         */
+        private Duration proxyTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * Write files and messages to an encrypted snapshot and reload it on startup
+         */
+        private boolean enabled = false;
+
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "fileshare-snapshot");
+
+        /**
+         * Operator key sealing the snapshot: 32 random bytes, Base64
+         */
+        private String key;
+
+        /**
+         * Time between periodic snapshots (one is also taken on shutdown),
+         * ISO-8601 such as PT5M since the scheduler reads it as well
+         */
+        private Duration interval = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Most files one batch upload may carry
+         */
+        private int maxFiles = 200;
+
+        /**
+         * Largest batch request body, also the multipart limit of the batch path only
+         */
+        private DataSize maxRequestSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Encryption workers shared by all batch uploads, 0 = one per core
+         */
+        private int threads = 0;
+    }
+
+    public enum Completion {
+        FIRST_GET,   // delete as soon as any download request ends
+        ALL_RANGES,  // delete once every byte was served by some request
+        GRACE        // delete a grace period after the first complete download
+    }
+
+    public enum Backend {
+        HEAP,
+        OFF_HEAP
+    }
+}
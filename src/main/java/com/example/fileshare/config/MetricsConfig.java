@@ -0,0 +1,72 @@
+package com.example.fileshare.config;
+
+import com.example.fileshare.service.ExpiryScheduler;
+import com.example.fileshare.service.InMemoryStorageService;
+import com.example.fileshare.service.MessageService;
+import com.example.fileshare.service.SnapshotService;
+import com.example.fileshare.service.StorageBudget;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Timers and gauges for storage, crypto, messages and cleanup jobs.
+ * Tags carry class and method names only - never file IDs, filenames or
+ * message content. Percentiles are configured in application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Enables @Timed on service methods
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder fileshareMetrics(InMemoryStorageService storageService, StorageBudget storageBudget,
+                                        MessageService messageService, ExpiryScheduler expiryScheduler) {
+        return registry -> {
+            Gauge.builder("fileshare.storage.used", storageBudget, StorageBudget::getUsedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("fileshare.storage.files", storageService, InMemoryStorageService::getFileCount)
+                    .register(registry);
+            Gauge.builder("fileshare.messages.stored", messageService, MessageService::getMessageCount)
+                    .register(registry);
+            Gauge.builder("fileshare.expiry.pending", expiryScheduler, ExpiryScheduler::getPendingCount)
+                    .register(registry);
+            FunctionCounter.builder("fileshare.expiry.fired", expiryScheduler, ExpiryScheduler::getFiredCount)
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Size of the last snapshot and what the startup load brought back
+     */
+    @Bean
+    public MeterBinder snapshotMetrics(SnapshotService snapshotService) {
+        return registry -> {
+            Gauge.builder("fileshare.snapshot.size", snapshotService, SnapshotService::getLastSnapshotBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("fileshare.snapshot.restored.files", snapshotService, SnapshotService::getRestoredFiles)
+                    .register(registry);
+            Gauge.builder("fileshare.snapshot.refused.files", snapshotService, SnapshotService::getRefusedFiles)
+                    .register(registry);
+            Gauge.builder("fileshare.snapshot.restored.messages", snapshotService,
+                            SnapshotService::getRestoredMessages)
+                    .register(registry);
+            Gauge.builder("fileshare.snapshot.restore.duration", snapshotService,
+                            service -> service.getRestoreMillis() / 1000.0)
+                    .baseUnit("seconds")
+                    .register(registry);
+        };
+    }
+}
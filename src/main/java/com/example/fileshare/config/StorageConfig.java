@@ -0,0 +1,151 @@
+package com.example.fileshare.config;
+
+import com.example.fileshare.model.Codec;
+import com.example.fileshare.service.CompressionService;
+import com.example.fileshare.service.DedupService;
+import com.example.fileshare.service.EncryptionService;
+import com.example.fileshare.storage.CiphertextStore;
+import com.example.fileshare.storage.HeapCiphertextStore;
+import com.example.fileshare.storage.OffHeapCiphertextStore;
+import com.example.fileshare.storage.SlabAllocator;
+import com.example.fileshare.storage.SpillStore;
+import com.example.fileshare.storage.TieredCiphertextStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+
+@Configuration
+@EnableConfigurationProperties(FileshareProperties.class)
+public class StorageConfig {
+
+    @Bean
+    public CiphertextStore ciphertextStore(FileshareProperties properties) throws IOException {
+        CiphertextStore memory = memoryStore(properties.getStorage());
+
+        FileshareProperties.Spill spill = properties.getSpill();
+        if (spill.isEnabled()) {
+            return new TieredCiphertextStore(memory, new SpillStore(
+                    spill.getDirectory(),
+                    spill.getSegmentSize().toBytes(),
+                    spill.getMaxDisk().toBytes()
+            ));
+        }
+        return memory;
+    }
+
+    private static CiphertextStore memoryStore(FileshareProperties.Storage storage) {
+        if (storage.getBackend() == FileshareProperties.Backend.OFF_HEAP) {
+            return new OffHeapCiphertextStore(new SlabAllocator(
+                    EncryptionService.SEGMENT_SIZE + EncryptionService.SEGMENT_OVERHEAD,
+                    storage.getSlabSize().toBytes(),
+                    storage.getMaxOffHeap().toBytes()
+            ));
+        }
+        return new HeapCiphertextStore();
+    }
+
+    /**
+     * Slab usage gauges (off-heap backend only)
+     */
+    @Bean
+    public MeterBinder slabMetrics(CiphertextStore ciphertextStore) {
+        return registry -> {
+            CiphertextStore memory = ciphertextStore instanceof TieredCiphertextStore tiered
+                    ? tiered.getMemoryStore()
+                    : ciphertextStore;
+            if (!(memory instanceof OffHeapCiphertextStore offHeap)) {
+                return;
+            }
+            SlabAllocator allocator = offHeap.getAllocator();
+
+            Gauge.builder("fileshare.storage.slab.capacity", allocator, SlabAllocator::getCapacityBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("fileshare.storage.slab.allocated", allocator, SlabAllocator::getAllocatedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("fileshare.storage.slab.used", allocator, SlabAllocator::getUsedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("fileshare.storage.slab.count", allocator, SlabAllocator::getSlabCount)
+                    .register(registry);
+            Gauge.builder("fileshare.storage.slab.fragmentation", allocator, SlabAllocator::getFragmentation)
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Spill tier gauges (spill enabled only)
+     */
+    @Bean
+    public MeterBinder spillMetrics(CiphertextStore ciphertextStore) {
+        return registry -> {
+            if (!(ciphertextStore instanceof TieredCiphertextStore tiered)) {
+                return;
+            }
+            SpillStore spill = tiered.getSpillStore();
+
+            Gauge.builder("fileshare.storage.spill.disk", spill, SpillStore::getDiskBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("fileshare.storage.spill.live", spill, SpillStore::getLiveBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Bytes saved and CPU spent by compression before encryption
+     */
+    @Bean
+    public MeterBinder compressionMetrics(CompressionService compressionService) {
+        return registry -> {
+            for (Codec codec : Codec.values()) {
+                FunctionCounter.builder("fileshare.compression.files", compressionService,
+                                service -> service.getFileCount(codec))
+                        .tag("codec", codec.name())
+                        .register(registry);
+            }
+            FunctionCounter.builder("fileshare.compression.input", compressionService,
+                            CompressionService::getInputBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("fileshare.compression.stored", compressionService,
+                            CompressionService::getStoredBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("fileshare.compression.cpu", compressionService,
+                            service -> service.getCompressNanos() / 1e9)
+                    .baseUnit("seconds")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * How often uploads hit content already in memory, and what that saves
+     */
+    @Bean
+    public MeterBinder dedupMetrics(DedupService dedupService) {
+        return registry -> {
+            FunctionCounter.builder("fileshare.dedup.lookups", dedupService, DedupService::getHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("fileshare.dedup.lookups", dedupService, DedupService::getMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+            Gauge.builder("fileshare.dedup.hit.ratio", dedupService, DedupService::getHitRatio)
+                    .register(registry);
+            Gauge.builder("fileshare.dedup.unique", dedupService, DedupService::getUniqueCount)
+                    .register(registry);
+            Gauge.builder("fileshare.dedup.saved", dedupService, DedupService::getSavedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.fileshare.config;
+
+import com.example.fileshare.dto.FileResponse;
+import com.example.fileshare.service.InMemoryStorageService;
+import com.example.fileshare.service.StorageBudget;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Admission control for uploads.
+ * Runs before multipart parsing so rejected bodies are never read, and
+ * after cluster routing so only the owning node charges its budget.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final String BATCH_PATH = "/api/checking/error/batch";
+
+    private static final Set<String> UPLOAD_PATHS = Set.of(
+            "/api/checking/error",
+            "/api/checking/error/stream",
+            BATCH_PATH
+    );
+
+    // Multipart boundaries and headers on top of the file itself
+    private static final long MAX_REQUEST_SIZE = InMemoryStorageService.MAX_FILE_SIZE + 1024 * 1024;
+
+    private final StorageBudget storageBudget;
+    private final FileshareProperties properties;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !UPLOAD_PATHS.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        long contentLength = request.getContentLengthLong();
+        boolean batch = BATCH_PATH.equals(request.getRequestURI());
+        long maxRequestSize = batch ? properties.getBatch().getMaxRequestSize().toBytes() : MAX_REQUEST_SIZE;
+
+        if (contentLength > maxRequestSize) {
+            reject(response, HttpStatus.PAYLOAD_TOO_LARGE, batch
+                    ? "Batch too large (max " + properties.getBatch().getMaxRequestSize().toMegabytes() + "MB)"
+                    : "File too large (max 15MB)");
+            return;
+        }
+
+        // Chunked bodies have no length up front - assume the worst case
+        long reserved = contentLength < 0 ? maxRequestSize : contentLength;
+        String clientId = request.getRemoteAddr();
+
+        switch (storageBudget.reserve(clientId, reserved)) {
+            case NODE_FULL -> {
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Server storage full, try again later");
+                return;
+            }
+            case CLIENT_QUOTA -> {
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, "Too many uploads in progress");
+                return;
+            }
+            case ADMITTED -> {
+            }
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            storageBudget.cancel(clientId, reserved);
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        if (status != HttpStatus.PAYLOAD_TOO_LARGE) {
+            response.setHeader(HttpHeaders.RETRY_AFTER,
+                    String.valueOf(properties.getBudget().getRetryAfter().toSeconds()));
+        }
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), FileResponse.error(message));
+    }
+}
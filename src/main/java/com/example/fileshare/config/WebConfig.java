@@ -1,7 +1,12 @@
 package com.example.fileshare.config;
 
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -24,4 +29,27 @@ public class WebConfig {
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * The batch path gets its own dispatcher so only it takes the larger
+     * multipart limit; the container applies the limit of the servlet a
+     * request maps to. Same context, same controllers and filters.
+     */
+    @Bean
+    public ServletRegistrationBean<DispatcherServlet> batchUploadServlet(WebApplicationContext context,
+                                                                         MultipartProperties multipart,
+                                                                         FileshareProperties properties) {
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setLocation(multipart.getLocation());
+        factory.setMaxFileSize(multipart.getMaxFileSize());
+        factory.setMaxRequestSize(properties.getBatch().getMaxRequestSize());
+        factory.setFileSizeThreshold(multipart.getFileSizeThreshold());
+
+        ServletRegistrationBean<DispatcherServlet> registration =
+                new ServletRegistrationBean<>(new DispatcherServlet(context), "/api/checking/error/batch");
+        registration.setName("batchUploadServlet");
+        registration.setMultipartConfig(factory.createMultipartConfig());
+        registration.setLoadOnStartup(1);
+        return registration;
+    }
+}
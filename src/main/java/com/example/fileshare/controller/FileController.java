@@ -1,16 +1,35 @@
 package com.example.fileshare.controller;
 
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.dto.BatchUploadResponse;
+import com.example.fileshare.dto.FileKeyResponse;
 import com.example.fileshare.dto.FileResponse;
+import com.example.fileshare.dto.ServerStatsResponse;
+import com.example.fileshare.model.Codec;
 import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.service.BatchUploadService;
 import com.example.fileshare.service.InMemoryStorageService;
+import com.example.fileshare.service.StatusService;
+import com.example.fileshare.service.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * Secure File Transfer REST API
@@ -22,6 +41,10 @@ import org.springframework.web.multipart.MultipartFile;
 public class FileController {
 
     private final InMemoryStorageService storageService;
+    private final UploadSessionService uploadSessionService;
+    private final StatusService statusService;
+    private final BatchUploadService batchUploadService;
+    private final FileshareProperties properties;
 
     /**
      * Upload file - Returns unique file ID
@@ -37,15 +60,61 @@ public class FileController {
             }
 
             // Size check (15MB limit)
-            if (file.getSize() > 15 * 1024 * 1024) {
+            if (file.getSize() > InMemoryStorageService.MAX_FILE_SIZE) {
                 return ResponseEntity.badRequest()
                         .body(FileResponse.error("File too large (max 15MB)"));
             }
 
-            // Store encrypted file in memory
+            // Stream encrypted segments into memory
+            String fileId;
+            try (InputStream in = file.getInputStream()) {
+                fileId = storageService.storeFile(file.getOriginalFilename(), in);
+            }
+
+            return ResponseEntity.ok(FileResponse.success(
+                    fileId,
+                    "File uploaded successfully",
+                    60L
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError()
+                    .body(FileResponse.error("Upload failed"));
+        }
+    }
+
+    /**
+     * Upload many files in one request - parts are encrypted in parallel
+     * Each part gets its own ID and result; one bad part does not fail the batch
+     * POST /api/checking/error/batch  (repeat the "files" part)
+     */
+    @PostMapping(value = "/error/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BatchUploadResponse> uploadBatch(@RequestParam("files") List<MultipartFile> files) {
+        int maxFiles = properties.getBatch().getMaxFiles();
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(BatchUploadResponse.error("No files in batch"));
+        }
+        if (files.size() > maxFiles) {
+            return ResponseEntity.badRequest()
+                    .body(BatchUploadResponse.error("Too many files (max " + maxFiles + ")"));
+        }
+
+        return ResponseEntity.ok(BatchUploadResponse.of(batchUploadService.storeAll(files), 60L));
+    }
+
+    /**
+     * Upload raw request body - no multipart parsing, no temp copy
+     * POST /api/checking/error/stream  (X-File-Name: url-encoded name)
+     */
+    @PostMapping(value = "/error/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<FileResponse> uploadStream(
+            @RequestHeader(value = "X-File-Name", defaultValue = "file") String filename,
+            HttpServletRequest request) {
+        try (InputStream in = request.getInputStream()) {
             String fileId = storageService.storeFile(
-                    file.getOriginalFilename(),
-                    file.getBytes()
+                    URLDecoder.decode(filename, StandardCharsets.UTF_8),
+                    in
             );
 
             return ResponseEntity.ok(FileResponse.success(
@@ -54,6 +123,9 @@ public class FileController {
                     60L
             ));
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(FileResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                     .body(FileResponse.error("Upload failed"));
@@ -69,12 +141,20 @@ public class FileController {
         try {
             // Retrieve encrypted file
             EncryptedFile encryptedFile = storageService.retrieveFile(fileId);
+            if (encryptedFile.isKeyReleased() || !storageService.claimDownload(encryptedFile)) {
+                return ResponseEntity.notFound().build();
+            }
 
             // Decrypt file data
-            byte[] decryptedData = storageService.decryptFile(encryptedFile);
-
-            // Mark as downloaded (triggers auto-delete)
-            storageService.markAsDownloaded(fileId);
+            byte[] decryptedData;
+            boolean completed = false;
+            try {
+                decryptedData = storageService.decryptFile(encryptedFile);
+                completed = true;
+            } finally {
+                // Mark as downloaded (triggers auto-delete)
+                storageService.finishDownload(fileId, encryptedFile, 0, encryptedFile.getSize(), completed);
+            }
 
             // Return file with proper headers
             ByteArrayResource resource = new ByteArrayResource(decryptedData);
@@ -91,6 +171,151 @@ public class FileController {
         }
     }
 
+    /**
+     * Download file by ID, decrypting on the fly
+     * A single Range is served as 206 from just the segments it touches
+     * (compressed files have no plaintext offsets, so they are always sent whole);
+     * when the file is deleted follows fileshare.download.completion
+     * GET /api/checking/stream/{fileId}
+     */
+    @GetMapping("/stream/{fileId}")
+    public ResponseEntity<StreamingResponseBody> streamFile(
+            @PathVariable String fileId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader) {
+        try {
+            EncryptedFile encryptedFile = storageService.retrieveFile(fileId);
+            if (encryptedFile.isKeyReleased()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            long size = encryptedFile.getSize();
+            boolean rangeable = encryptedFile.getCodec() == Codec.NONE;
+            HttpRange range = rangeable ? singleRange(rangeHeader) : null;
+            if (range == null) {
+                if (!storageService.claimDownload(encryptedFile)) {
+                    return ResponseEntity.notFound().build();
+                }
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                "attachment; filename=\"" + encryptedFile.getOriginalFilename() + "\"")
+                        .header(HttpHeaders.ACCEPT_RANGES, rangeable ? "bytes" : "none")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .contentLength(size)
+                        .body(decryptBody(fileId, encryptedFile, 0, size));
+            }
+
+            long start = size == 0 ? 0 : range.getRangeStart(size);
+            long end = size == 0 ? 0 : range.getRangeEnd(size) + 1;
+            if (start >= end) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+            if (!storageService.claimDownload(encryptedFile)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"" + encryptedFile.getOriginalFilename() + "\"")
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(end - start)
+                    .body(decryptBody(fileId, encryptedFile, start, end));
+
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Decrypt segment by segment, then report the range as delivered
+     */
+    private StreamingResponseBody decryptBody(String fileId, EncryptedFile encryptedFile, long start, long end) {
+        return out -> {
+            boolean completed = false;
+            try {
+                if (start == 0 && end == encryptedFile.getSize()) {
+                    storageService.decryptTo(encryptedFile, out);
+                } else {
+                    storageService.decryptRangeTo(encryptedFile, start, end, out);
+                }
+                completed = true;
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Decryption failed", e);
+            } finally {
+                storageService.finishDownload(fileId, encryptedFile, start, end, completed);
+            }
+        };
+    }
+
+    /**
+     * Multi-range requests are answered with the whole file, as RFC 9110 allows
+     */
+    private static HttpRange singleRange(String rangeHeader) {
+        if (rangeHeader == null) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One-time key release for client-side decryption
+     * GET /api/checking/raw/{fileId}/key
+     */
+    @GetMapping("/raw/{fileId}/key")
+    public ResponseEntity<FileKeyResponse> releaseKey(@PathVariable String fileId) {
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(storageService.releaseKey(fileId));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Download stored ciphertext without decrypting it (the browser does that)
+     * GET /api/checking/raw/{fileId}
+     */
+    @GetMapping("/raw/{fileId}")
+    public ResponseEntity<StreamingResponseBody> rawFile(@PathVariable String fileId) {
+        try {
+            EncryptedFile encryptedFile = storageService.retrieveFile(fileId);
+            if (!storageService.claimDownload(encryptedFile)) {
+                return ResponseEntity.notFound().build();
+            }
+
+            // Ciphertext goes out as stored, auto-delete once fully sent
+            StreamingResponseBody body = out -> {
+                boolean completed = false;
+                try {
+                    storageService.transferCiphertext(encryptedFile, out);
+                    completed = true;
+                } finally {
+                    storageService.finishDownload(fileId, encryptedFile, 0, encryptedFile.getSize(), completed);
+                }
+            };
+
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(encryptedFile.getCiphertext().sizeInBytes())
+                    .body(body);
+
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     /**
      * Check if file exists
      * GET /api/files/check/{fileId}
@@ -119,6 +344,18 @@ public class FileController {
                 storageService.getFileCount() + " files in memory");
     }
 
+    /**
+     * Capacity and throughput for dashboards and load balancers
+     * Built from running counters - cheap to poll at any store size
+     * GET /api/checking/stats
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ServerStatsResponse> getStats() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(statusService.snapshot());
+    }
+
     /**
      * Emergency delete all files
      * POST /api/files/clear
@@ -126,6 +363,7 @@ public class FileController {
     @PostMapping("/clear")
     public ResponseEntity<FileResponse> clearAllFiles() {
         storageService.clearAll();
+        uploadSessionService.clearAll();
         return ResponseEntity.ok(FileResponse.success(
                 null,
                 "All files cleared from memory",
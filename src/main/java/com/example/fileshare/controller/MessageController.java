@@ -1,11 +1,16 @@
 package com.example.fileshare.controller;
 
+import com.example.fileshare.dto.MessagePage;
 import com.example.fileshare.dto.MessageResponse;
 import com.example.fileshare.model.Message;
+import com.example.fileshare.service.MessageBroadcaster;
 import com.example.fileshare.service.MessageService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -16,7 +21,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MessageController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final MessageService messageService;
+    private final MessageBroadcaster messageBroadcaster;
 
     @PostMapping("/send")
     public ResponseEntity<MessageResponse> sendMessage(@RequestBody Map<String, String> request) {
@@ -35,12 +43,7 @@ public class MessageController {
             }
 
             Message message = messageService.sendMessage(content, senderId);
-            return ResponseEntity.ok(MessageResponse.success(
-                    message.getMessageId(),
-                    message.getContent(),
-                    message.getSenderId(),
-                    message.getTimestamp()
-            ));
+            return ResponseEntity.ok(toResponse(message));
 
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
@@ -52,12 +55,7 @@ public class MessageController {
     public ResponseEntity<List<MessageResponse>> getAllMessages() {
         try {
             List<MessageResponse> messages = messageService.getAllMessages().stream()
-                    .map(msg -> MessageResponse.success(
-                            msg.getMessageId(),
-                            msg.getContent(),
-                            msg.getSenderId(),
-                            msg.getTimestamp()
-                    ))
+                    .map(MessageController::toResponse)
                     .collect(Collectors.toList());
             return ResponseEntity.ok(messages);
         } catch (Exception e) {
@@ -65,6 +63,49 @@ public class MessageController {
         }
     }
 
+    /**
+     * Incremental fetch - only messages newer than the cursor
+     * GET /api/messages?after={cursor}&limit=N
+     */
+    @GetMapping
+    public ResponseEntity<MessagePage> getMessagesAfter(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            List<MessageResponse> messages = messageService
+                    .getMessagesAfter(after, Math.max(1, Math.min(limit, MAX_PAGE_SIZE))).stream()
+                    .map(MessageController::toResponse)
+                    .collect(Collectors.toList());
+            // Read after the page so it is never behind the returned cursor
+            long latest = messageService.getLastSequence();
+
+            long cursor = messages.isEmpty()
+                    ? after
+                    : messages.get(messages.size() - 1).getSequence();
+
+            return ResponseEntity.ok(MessagePage.builder()
+                    .messages(messages)
+                    .cursor(cursor)
+                    .latest(latest)
+                    .build());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Live message events (message / delete / clear) over Server-Sent Events
+     * GET /api/messages/stream
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessages() {
+        SseEmitter emitter = messageBroadcaster.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     @GetMapping("/{messageId}")
     public ResponseEntity<MessageResponse> getMessage(@PathVariable String messageId) {
         try {
@@ -72,12 +113,7 @@ public class MessageController {
             if (message == null) {
                 return ResponseEntity.notFound().build();
             }
-            return ResponseEntity.ok(MessageResponse.success(
-                    message.getMessageId(),
-                    message.getContent(),
-                    message.getSenderId(),
-                    message.getTimestamp()
-            ));
+            return ResponseEntity.ok(toResponse(message));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -103,4 +139,14 @@ public class MessageController {
                 .success(true)
                 .build());
     }
+
+    private static MessageResponse toResponse(Message message) {
+        return MessageResponse.success(
+                message.getMessageId(),
+                message.getSequence(),
+                message.getContent(),
+                message.getSenderId(),
+                message.getTimestamp()
+        );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.example.fileshare.controller;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.dto.FileResponse;
+import com.example.fileshare.dto.UploadSessionResponse;
+import com.example.fileshare.model.UploadSession;
+import com.example.fileshare.service.StorageBudget;
+import com.example.fileshare.service.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Resumable chunked uploads
+ * create session -> PUT chunks (any order, in parallel) -> commit
+ * NO LOGGING - NO TRACES
+ */
+@RestController
+@RequestMapping("/api/checking/uploads")
+@RequiredArgsConstructor
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+    private final StorageBudget storageBudget;
+    private final FileshareProperties properties;
+
+    /**
+     * Open a session; space for the whole file is reserved up front
+     * POST /api/checking/uploads  (X-File-Name: url-encoded name, X-File-Size: bytes)
+     */
+    @PostMapping
+    public ResponseEntity<?> createSession(
+            @RequestHeader(value = "X-File-Name", defaultValue = "file") String filename,
+            @RequestHeader("X-File-Size") long size,
+            HttpServletRequest request) {
+        long reserved;
+        try {
+            reserved = UploadSessionService.reservationFor(size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(FileResponse.error(e.getMessage()));
+        }
+
+        String clientId = request.getRemoteAddr();
+        switch (storageBudget.reserve(clientId, reserved)) {
+            case NODE_FULL -> {
+                return reject(HttpStatus.SERVICE_UNAVAILABLE, "Server storage full, try again later");
+            }
+            case CLIENT_QUOTA -> {
+                return reject(HttpStatus.TOO_MANY_REQUESTS, "Too many uploads in progress");
+            }
+            case ADMITTED -> {
+            }
+        }
+
+        UploadSession session = uploadSessionService.createSession(
+                clientId,
+                URLDecoder.decode(filename, StandardCharsets.UTF_8),
+                size,
+                reserved
+        );
+        return ResponseEntity.status(HttpStatus.CREATED).body(UploadSessionResponse.of(session));
+    }
+
+    /**
+     * Upload one chunk - re-sending a chunk is safe
+     * PUT /api/checking/uploads/{sessionId}/chunks/{index}
+     */
+    @PutMapping(value = "/{sessionId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> putChunk(@PathVariable String sessionId,
+                                      @PathVariable int index,
+                                      HttpServletRequest request) {
+        try (InputStream in = request.getInputStream()) {
+            boolean duplicate = uploadSessionService.putChunk(sessionId, index, in);
+
+            UploadSessionResponse response = UploadSessionResponse.of(uploadSessionService.getSession(sessionId));
+            response.setChunkIndex(index);
+            response.setDuplicate(duplicate);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(FileResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(FileResponse.error("Upload session not found or expired"));
+        }
+    }
+
+    /**
+     * Which chunks are still missing - used to resume after a dropped connection
+     * GET /api/checking/uploads/{sessionId}
+     */
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<?> getSession(@PathVariable String sessionId) {
+        try {
+            UploadSession session = uploadSessionService.getSession(sessionId);
+            UploadSessionResponse response = UploadSessionResponse.of(session);
+            response.setMissingChunks(session.getMissingChunks());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(FileResponse.error("Upload session not found or expired"));
+        }
+    }
+
+    /**
+     * Finish the upload - returns the file ID like a one-shot upload
+     * POST /api/checking/uploads/{sessionId}/commit
+     */
+    @PostMapping("/{sessionId}/commit")
+    public ResponseEntity<FileResponse> commit(@PathVariable String sessionId) {
+        try {
+            String fileId = uploadSessionService.commit(sessionId);
+            return ResponseEntity.ok(FileResponse.success(
+                    fileId,
+                    "File uploaded successfully",
+                    60L
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(FileResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(FileResponse.error("Upload session not found or expired"));
+        }
+    }
+
+    /**
+     * Abandon an upload and wipe received chunks
+     * DELETE /api/checking/uploads/{sessionId}
+     */
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<FileResponse> abort(@PathVariable String sessionId) {
+        uploadSessionService.abort(sessionId);
+        return ResponseEntity.ok(FileResponse.success(null, "Upload cancelled", null));
+    }
+
+    private ResponseEntity<FileResponse> reject(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(properties.getBudget().getRetryAfter().toSeconds()))
+                .body(FileResponse.error(message));
+    }
+}
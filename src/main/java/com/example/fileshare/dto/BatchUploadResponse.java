@@ -0,0 +1,53 @@
+package com.example.fileshare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Batch upload result - one entry per part, in request order
+ * A failed part does not fail the others; check each entry's success flag
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadResponse {
+
+    private List<Entry> files;
+    private int uploaded;
+    private int failed;
+    private Long expiresInMinutes;
+    private String message;     // Set when the batch as a whole was refused
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        private String filename;
+        private String fileId;    // Set when stored
+        private boolean success;
+        private String message;
+    }
+
+    public static BatchUploadResponse of(List<Entry> entries, Long expiresInMinutes) {
+        int uploaded = (int) entries.stream().filter(Entry::isSuccess).count();
+        return BatchUploadResponse.builder()
+                .files(entries)
+                .uploaded(uploaded)
+                .failed(entries.size() - uploaded)
+                .expiresInMinutes(expiresInMinutes)
+                .build();
+    }
+
+    public static BatchUploadResponse error(String message) {
+        return BatchUploadResponse.builder()
+                .files(List.of())
+                .message(message)
+                .build();
+    }
+}
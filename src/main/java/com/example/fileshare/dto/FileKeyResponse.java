@@ -0,0 +1,25 @@
+package com.example.fileshare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Key material for client-side decryption - handed out once per file
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileKeyResponse {
+
+    private String fileId;
+    private String filename;
+    private String key;         // Base64 AES-256 key
+    private String iv;          // Base64 base IV (segment index is XORed into its tail)
+    private int segmentSize;    // Plaintext bytes per segment; ciphertext adds a 16-byte tag
+    private long size;          // Plaintext size
+    private long ciphertextSize;
+    private String codec;       // NONE, or a zlib stream to inflate after decryption
+}
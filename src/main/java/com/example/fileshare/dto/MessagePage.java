@@ -0,0 +1,23 @@
+package com.example.fileshare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Incremental message fetch result
+ * cursor: pass back as ?after= to get only newer messages
+ * latest: newest sequence on the server (lower than cursor = server restarted)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePage {
+    private List<MessageResponse> messages;
+    private long cursor;
+    private long latest;
+}
@@ -13,15 +13,18 @@ import java.time.Instant;
 @AllArgsConstructor
 public class MessageResponse {
     private String messageId;
+    private long sequence;
     private String content;
     private String senderId;
     private Instant timestamp;
     private boolean success;
     private String error;
 
-    public static MessageResponse success(String messageId, String content, String senderId, Instant timestamp) {
+    public static MessageResponse success(String messageId, long sequence, String content,
+                                          String senderId, Instant timestamp) {
         return MessageResponse.builder()
                 .messageId(messageId)
+                .sequence(sequence)
                 .content(content)
                 .senderId(senderId)
                 .timestamp(timestamp)
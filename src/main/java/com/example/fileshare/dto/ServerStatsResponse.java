@@ -0,0 +1,44 @@
+package com.example.fileshare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Capacity and throughput snapshot - counts and sizes only, no IDs or names
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServerStatsResponse {
+
+    private int files;
+    private int messages;
+    private int uploadSessions;
+
+    private String backend;              // HEAP or OFF_HEAP
+    private long memoryBytes;            // Ciphertext held in RAM
+    private long offHeapAllocatedBytes;  // Direct memory taken by slabs (OFF_HEAP)
+    private long spilledBytes;           // Live ciphertext in spill files
+    private long spillDiskBytes;         // Spill files on disk, dead space included
+
+    private long budgetMaxBytes;
+    private long budgetUsedBytes;        // Stored plus reserved for uploads in flight
+    private long budgetReservedBytes;
+    private long budgetHeadroomBytes;
+
+    private double uploadsPerSecond1m;
+    private double uploadsPerSecond5m;
+    private double downloadsPerSecond1m;
+    private double downloadsPerSecond5m;
+    private long uploadsTotal;
+    private long downloadsTotal;
+
+    private double encryptMegabytesPerSecond; // Average over cipher time
+    private double decryptMegabytesPerSecond;
+
+    private long expiryPending;          // Deadlines not yet fired
+    private long expiryLagMillis;        // How far the wheel is behind the clock
+}
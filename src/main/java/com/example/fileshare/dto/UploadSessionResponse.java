@@ -0,0 +1,36 @@
+package com.example.fileshare.dto;
+
+import com.example.fileshare.model.UploadSession;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Upload session state - returned on create, per chunk and on status checks
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+
+    private String sessionId;
+    private int chunkSize;
+    private int chunkCount;
+    private int receivedChunks;
+    private Integer chunkIndex;          // Set on chunk acknowledgements
+    private Boolean duplicate;           // Chunk had already been received
+    private List<Integer> missingChunks; // Set on status checks, for resuming
+
+    public static UploadSessionResponse of(UploadSession session) {
+        return UploadSessionResponse.builder()
+                .sessionId(session.getSessionId())
+                .chunkSize(session.getChunkSize())
+                .chunkCount(session.getChunkCount())
+                .receivedChunks(session.getReceivedChunkCount())
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.fileshare.model;
+
+import java.util.zip.Deflater;
+
+/**
+ * How plaintext was compressed before encryption (zlib format for DEFLATE*)
+ */
+public enum Codec {
+    NONE(Deflater.NO_COMPRESSION),
+    DEFLATE_FAST(Deflater.BEST_SPEED),
+    DEFLATE(Deflater.DEFAULT_COMPRESSION);
+
+    private final int level;
+
+    Codec(int level) {
+        this.level = level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+}
@@ -1,60 +1,157 @@
 package com.example.fileshare.model;
 
-import lombok.AllArgsConstructor;
+import com.example.fileshare.storage.CiphertextBlob;
+import lombok.AccessLevel;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
 
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * In-memory encrypted file storage
  * NO DISK PERSISTENCE - RAM ONLY
+ * Content and key material are fixed at upload; everything that changes
+ * afterwards lives in one immutable FileMetadata swapped by compare-and-set.
  */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
+@Getter
 public class EncryptedFile {
 
-    private String fileId;           // Random UUID
-    private String originalFilename; // Original name (encrypted)
-    private byte[] encryptedData;    // Encrypted file content
-    private byte[] encryptionKey;    // Unique key per file
-    private byte[] iv;               // Initialization vector
-    private long size;               // Original size
-    private Instant createdAt;       // Creation time
-    private Instant expiresAt;       // Auto-delete time
-    private boolean downloaded;      // Track if downloaded (for auto-delete)
+    private final CiphertextBlob ciphertext; // Encrypted content, one GCM segment per chunk
+    private final int segmentSize;           // Plaintext bytes per segment
+    private final Codec codec;               // Compression applied before encryption
+    private final byte[] encryptionKey;      // Unique key per file
+    private final byte[] iv;                 // Initialization vector
+    private final ServedRanges servedRanges = new ServedRanges(); // Byte ranges already delivered
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<FileMetadata> metadata;
+
+    @Builder
+    public EncryptedFile(String originalFilename, CiphertextBlob ciphertext, int segmentSize, Codec codec,
+                         byte[] encryptionKey, byte[] iv, long size, Instant createdAt, Instant expiresAt) {
+        this.ciphertext = ciphertext;
+        this.segmentSize = segmentSize;
+        this.codec = codec != null ? codec : Codec.NONE;
+        this.encryptionKey = encryptionKey;
+        this.iv = iv;
+        this.metadata = new AtomicReference<>(new FileMetadata(
+                null, originalFilename, size, createdAt, expiresAt, FileState.AVAILABLE, false, 0));
+    }
+
+    public FileMetadata getMetadata() {
+        return metadata.get();
+    }
+
+    public String getFileId() {
+        return metadata.get().fileId();
+    }
+
+    public String getOriginalFilename() {
+        return metadata.get().originalFilename();
+    }
+
+    public long getSize() {
+        return metadata.get().size();
+    }
+
+    public Instant getCreatedAt() {
+        return metadata.get().createdAt();
+    }
+
+    public Instant getExpiresAt() {
+        return metadata.get().expiresAt();
+    }
+
+    public FileState getState() {
+        return metadata.get().state();
+    }
+
+    public boolean isKeyReleased() {
+        return metadata.get().keyReleased();
+    }
 
     /**
      * Check if file has expired
      */
     public boolean isExpired() {
-        return Instant.now().isAfter(expiresAt);
+        return Instant.now().isAfter(getExpiresAt());
     }
 
     /**
-     * Check if file should be deleted (downloaded + auto-delete enabled)
+     * Set the ID while the file is being published
      */
-    public boolean shouldAutoDelete() {
-        return downloaded || isExpired();
+    public void assignId(String fileId) {
+        metadata.updateAndGet(current -> current.withFileId(fileId));
     }
 
     /**
-     * Mark file as downloaded
+     * Move from one state to the next; false if someone else moved first
      */
-    public void markAsDownloaded() {
-        this.downloaded = true;
+    public boolean transition(FileState from, FileState to) {
+        FileMetadata current = metadata.get();
+        while (current.state() == from) {
+            if (metadata.compareAndSet(current, current.withState(to))) {
+                return true;
+            }
+            current = metadata.get();
+        }
+        return false;
     }
 
     /**
-     * Clear sensitive data from memory (security measure)
+     * Exactly one caller wins the move to DELETED and does the wipe
      */
-    public void clearSensitiveData() {
-        if (encryptedData != null) {
-            java.util.Arrays.fill(encryptedData, (byte) 0);
+    public boolean markDeleted() {
+        FileMetadata current = metadata.get();
+        while (current.state() != FileState.DELETED) {
+            if (metadata.compareAndSet(current, current.withState(FileState.DELETED))) {
+                return true;
+            }
+            current = metadata.get();
+        }
+        return false;
+    }
+
+    /**
+     * Claim the one-time key handout - only while nobody is downloading
+     * and no server-side decryption is using the key
+     */
+    public boolean markKeyReleased() {
+        FileMetadata current = metadata.get();
+        while (current.state() == FileState.AVAILABLE && !current.keyReleased() && current.decrypting() == 0) {
+            if (metadata.compareAndSet(current, current.withKeyReleased())) {
+                return true;
+            }
+            current = metadata.get();
         }
+        return false;
+    }
+
+    /**
+     * Hold the key for a server-side decryption; false once it was handed out.
+     * Every successful call must be paired with endDecrypt.
+     */
+    public boolean beginDecrypt() {
+        FileMetadata current = metadata.get();
+        while (current.state() != FileState.DELETED && !current.keyReleased()) {
+            if (metadata.compareAndSet(current, current.withDecrypting(current.decrypting() + 1))) {
+                return true;
+            }
+            current = metadata.get();
+        }
+        return false;
+    }
+
+    public void endDecrypt() {
+        metadata.updateAndGet(current -> current.withDecrypting(current.decrypting() - 1));
+    }
+
+    /**
+     * Clear key material from memory (security measure).
+     * The ciphertext is released by the caller, which also credits the budget.
+     */
+    public void clearSensitiveData() {
         if (encryptionKey != null) {
             java.util.Arrays.fill(encryptionKey, (byte) 0);
         }
@@ -62,4 +159,4 @@ public class EncryptedFile {
             java.util.Arrays.fill(iv, (byte) 0);
         }
     }
-}
\ No newline at end of file
+}
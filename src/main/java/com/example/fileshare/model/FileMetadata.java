@@ -0,0 +1,35 @@
+package com.example.fileshare.model;
+
+import java.time.Instant;
+
+/**
+ * Immutable snapshot of a file's descriptive fields and state.
+ * Changes are made by swapping in a new instance with compare-and-set.
+ */
+public record FileMetadata(
+        String fileId,
+        String originalFilename,
+        long size,
+        Instant createdAt,
+        Instant expiresAt,
+        FileState state,
+        boolean keyReleased,
+        int decrypting // Server-side decryptions using the key right now
+) {
+
+    public FileMetadata withFileId(String fileId) {
+        return new FileMetadata(fileId, originalFilename, size, createdAt, expiresAt, state, keyReleased, decrypting);
+    }
+
+    public FileMetadata withState(FileState state) {
+        return new FileMetadata(fileId, originalFilename, size, createdAt, expiresAt, state, keyReleased, decrypting);
+    }
+
+    public FileMetadata withKeyReleased() {
+        return new FileMetadata(fileId, originalFilename, size, createdAt, expiresAt, state, true, decrypting);
+    }
+
+    public FileMetadata withDecrypting(int decrypting) {
+        return new FileMetadata(fileId, originalFilename, size, createdAt, expiresAt, state, keyReleased, decrypting);
+    }
+}
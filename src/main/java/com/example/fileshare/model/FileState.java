@@ -0,0 +1,11 @@
+package com.example.fileshare.model;
+
+/**
+ * Lifecycle of a stored file - only ever moves forward
+ */
+public enum FileState {
+    AVAILABLE,   // Can be downloaded
+    CLAIMED,     // One download owns it (FIRST_GET) - nobody else gets it
+    DOWNLOADED,  // Delivered, kept until its grace period ends (GRACE)
+    DELETED      // Removed and wiped
+}
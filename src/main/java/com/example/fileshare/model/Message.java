@@ -13,6 +13,7 @@ import java.time.Instant;
 @AllArgsConstructor
 public class Message {
     private String messageId;
+    private long sequence;
     private String content;
     private String senderId;
     private Instant timestamp;
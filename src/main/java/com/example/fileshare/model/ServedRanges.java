@@ -0,0 +1,36 @@
+package com.example.fileshare.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Byte ranges of a file that were delivered in full, merged as they arrive
+ */
+public class ServedRanges {
+
+    private final TreeMap<Long, Long> ranges = new TreeMap<>(); // start -> end (exclusive)
+
+    /**
+     * Record [start, end) as served
+     *
+     * @return true once [0, size) is covered
+     */
+    public synchronized boolean add(long start, long end, long size) {
+        Map.Entry<Long, Long> before = ranges.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+
+        Map.Entry<Long, Long> after = ranges.ceilingEntry(start);
+        while (after != null && after.getKey() <= end) {
+            end = Math.max(end, after.getValue());
+            ranges.remove(after.getKey());
+            after = ranges.ceilingEntry(start);
+        }
+        ranges.put(start, end);
+
+        Map.Entry<Long, Long> first = ranges.firstEntry();
+        return first.getKey() == 0 && first.getValue() >= size;
+    }
+}
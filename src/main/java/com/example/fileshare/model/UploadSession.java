@@ -0,0 +1,102 @@
+package com.example.fileshare.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Chunked upload in progress - chunks arrive in any order and are
+ * encrypted on arrival, so only ciphertext is held between requests
+ * NO DISK PERSISTENCE - RAM ONLY
+ */
+@Getter
+public class UploadSession {
+
+    private final String sessionId;         // Random UUID - knowing it allows writing
+    private final String clientId;          // Owner of the budget reservation
+    private final String originalFilename;
+    private final long size;                // Declared plaintext size
+    private final int chunkSize;            // Plaintext bytes per chunk (last may be shorter)
+    private final int chunkCount;
+    private final long reservedBytes;       // Ciphertext bytes reserved in the budget
+    private final byte[] encryptionKey;
+    private final byte[] iv;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicReferenceArray<byte[][]> chunks;   // Encrypted segments per chunk
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger receivedChunks = new AtomicInteger();
+    private volatile Instant lastActivity = Instant.now();
+    private volatile boolean closed;
+
+    public UploadSession(String sessionId, String clientId, String originalFilename, long size,
+                         int chunkSize, long reservedBytes, byte[] encryptionKey, byte[] iv) {
+        this.sessionId = sessionId;
+        this.clientId = clientId;
+        this.originalFilename = originalFilename;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+        this.reservedBytes = reservedBytes;
+        this.encryptionKey = encryptionKey;
+        this.iv = iv;
+        this.chunks = new AtomicReferenceArray<>(chunkCount);
+    }
+
+    /**
+     * Plaintext length the given chunk must have
+     */
+    public int chunkLength(int index) {
+        return (int) Math.min(chunkSize, size - (long) index * chunkSize);
+    }
+
+    public boolean hasChunk(int index) {
+        return chunks.get(index) != null;
+    }
+
+    /**
+     * First copy of a chunk wins; later duplicates are rejected
+     */
+    public boolean storeChunk(int index, byte[][] segments) {
+        if (!chunks.compareAndSet(index, null, segments)) {
+            return false;
+        }
+        receivedChunks.incrementAndGet();
+        return true;
+    }
+
+    public byte[][] takeChunk(int index) {
+        return chunks.getAndSet(index, null);
+    }
+
+    public boolean isComplete() {
+        return receivedChunks.get() == chunkCount;
+    }
+
+    public List<Integer> getMissingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            if (chunks.get(i) == null) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    public int getReceivedChunkCount() {
+        return receivedChunks.get();
+    }
+
+    public void touch() {
+        lastActivity = Instant.now();
+    }
+
+    public void close() {
+        closed = true;
+    }
+}
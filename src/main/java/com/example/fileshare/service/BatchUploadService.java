@@ -0,0 +1,102 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.dto.BatchUploadResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores the parts of a multi-file upload concurrently.
+ * Encryption is CPU-bound, so all batches share one pool of about one
+ * worker per core; when its queue is full the request thread encrypts
+ * the part itself, which keeps concurrent batches from piling up.
+ * NO LOGGING - NO TRACES
+ */
+@Service
+public class BatchUploadService implements AutoCloseable {
+
+    private final InMemoryStorageService storageService;
+    private final ThreadPoolExecutor pool;
+
+    public BatchUploadService(InMemoryStorageService storageService, FileshareProperties properties) {
+        this.storageService = storageService;
+        int threads = properties.getBatch().getThreads() > 0
+                ? properties.getBatch().getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                task -> {
+                    Thread thread = new Thread(task, "batch-upload-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Unlike CallerRunsPolicy this also runs after shutdown, so no part is left unanswered
+                (task, executor) -> task.run());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Store every part, each on its own; entries come back in part order
+     */
+    public List<BatchUploadResponse.Entry> storeAll(List<MultipartFile> files) {
+        List<CompletableFuture<BatchUploadResponse.Entry>> pending = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            pending.add(CompletableFuture.supplyAsync(() -> store(file), pool));
+        }
+
+        List<BatchUploadResponse.Entry> entries = new ArrayList<>(files.size());
+        for (CompletableFuture<BatchUploadResponse.Entry> entry : pending) {
+            entries.add(entry.join());
+        }
+        return entries;
+    }
+
+    private BatchUploadResponse.Entry store(MultipartFile file) {
+        String filename = file.getOriginalFilename();
+        if (file.isEmpty()) {
+            return failure(filename, "File is empty");
+        }
+        if (file.getSize() > InMemoryStorageService.MAX_FILE_SIZE) {
+            return failure(filename, "File too large (max 15MB)");
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            return BatchUploadResponse.Entry.builder()
+                    .filename(filename)
+                    .fileId(storageService.storeFile(filename, in))
+                    .success(true)
+                    .message("File uploaded successfully")
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return failure(filename, e.getMessage());
+        } catch (Exception e) {
+            return failure(filename, "Upload failed");
+        }
+    }
+
+    private static BatchUploadResponse.Entry failure(String filename, String message) {
+        return BatchUploadResponse.Entry.builder()
+                .filename(filename)
+                .success(false)
+                .message(message)
+                .build();
+    }
+
+    /**
+     * Parts already queued still finish; later ones run on the request thread
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,481 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.model.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Message board storage without an object per message.
+ * Messages sit in fixed-size blocks of primitive columns indexed by
+ * sequence: IDs packed into longs, epoch-millis timestamps, a sender
+ * dictionary index, and content as UTF-8 in per-block byte arenas.
+ * Message objects are built only when a caller reads them. Messages
+ * expire in sequence order, so whole blocks are dropped from the front.
+ */
+public class CompactMessageStore {
+
+    private static final int BLOCK_BITS = 12;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS; // 4096 messages
+    private static final int ARENA_SIZE = 64 * 1024;
+
+    // IdAllocator's alphabet; digits 1..62 so that no ID packs to 0
+    private static final String ID_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int ID_RADIX = ID_CHARACTERS.length() + 1;
+    private static final int MAX_PACKED_ID_LENGTH = 10; // 63^10 < 2^63
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Block> blocks = new TreeMap<>(); // by sequence >>> BLOCK_BITS
+    private final LongIndex sequencesById = new LongIndex();
+    private final SenderDictionary senders = new SenderDictionary();
+    private volatile int size;
+
+    /**
+     * Add a message unless its ID or sequence is taken
+     *
+     * @return false if the ID is in use (caller picks another)
+     */
+    public boolean add(String messageId, long sequence, String content, String senderId,
+                       long timestamp, long expiresAt) {
+        long packedId = packId(messageId);
+        if (packedId == 0) {
+            throw new IllegalArgumentException("Unsupported message ID");
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (sequencesById.get(packedId) != 0) {
+                return false;
+            }
+            Block block = blocks.computeIfAbsent(sequence >>> BLOCK_BITS, number -> new Block());
+            int slot = (int) (sequence & (BLOCK_SIZE - 1));
+            if (slot < block.limit) {
+                return false; // Sequences only ever move forward
+            }
+
+            block.ids[slot] = packedId;
+            block.timestamps[slot] = timestamp;
+            block.expiresAt[slot] = expiresAt;
+            block.senders[slot] = senders.acquire(senderId);
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            block.contentAddresses[slot] = block.store(bytes);
+            block.contentLengths[slot] = bytes.length;
+            block.limit = slot + 1;
+
+            sequencesById.put(packedId, sequence);
+            size++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The message with this ID, or null if unknown or expired
+     */
+    public Message get(String messageId, long now) {
+        long packedId = packId(messageId);
+        if (packedId == 0) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            long sequence = sequencesById.get(packedId);
+            if (sequence == 0) {
+                return null;
+            }
+            Block block = blocks.get(sequence >>> BLOCK_BITS);
+            int slot = (int) (sequence & (BLOCK_SIZE - 1));
+            return block.expiresAt[slot] < now ? null : view(block, sequence, slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live messages with a sequence greater than the cursor, oldest first
+     */
+    public List<Message> after(long cursor, int limit, long now) {
+        List<Message> messages = new ArrayList<>(Math.min(limit, 64));
+        lock.readLock().lock();
+        try {
+            long from = Math.max(cursor + 1, 0);
+            for (Map.Entry<Long, Block> entry : blocks.tailMap(from >>> BLOCK_BITS, true).entrySet()) {
+                Block block = entry.getValue();
+                long base = entry.getKey() << BLOCK_BITS;
+                for (int slot = (int) Math.max(0, from - base); slot < block.limit; slot++) {
+                    if (messages.size() >= limit) {
+                        return messages;
+                    }
+                    if (block.ids[slot] != 0 && block.expiresAt[slot] >= now) {
+                        messages.add(view(block, base + slot, slot));
+                    }
+                }
+            }
+            return messages;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the message was stored, expired or not
+     */
+    public boolean remove(String messageId) {
+        long packedId = packId(messageId);
+        if (packedId == 0) {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            long sequence = sequencesById.get(packedId);
+            if (sequence == 0) {
+                return false;
+            }
+            removeSlot(blocks.get(sequence >>> BLOCK_BITS), (int) (sequence & (BLOCK_SIZE - 1)));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove messages whose deadline has passed, oldest first, and drop
+     * blocks that are used up. Stops at the first live message.
+     *
+     * @return messages removed
+     */
+    public int expire(long now) {
+        int removed = 0;
+        lock.writeLock().lock();
+        try {
+            while (!blocks.isEmpty()) {
+                Block block = blocks.firstEntry().getValue();
+                for (; block.swept < block.limit; block.swept++) {
+                    int slot = block.swept;
+                    if (block.ids[slot] == 0) {
+                        continue;
+                    }
+                    if (block.expiresAt[slot] >= now) {
+                        return removed;
+                    }
+                    removeSlot(block, slot);
+                    removed++;
+                }
+                if (block.swept < BLOCK_SIZE && blocks.size() == 1) {
+                    return removed; // Newest block, still filling
+                }
+                block.wipe();
+                blocks.pollFirstEntry();
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeSlot(Block block, int slot) {
+        sequencesById.remove(block.ids[slot]);
+        senders.release(block.senders[slot]);
+        block.erase(slot);
+        size--;
+    }
+
+    /**
+     * Messages stored, including any expired in the last tick
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            blocks.values().forEach(Block::wipe);
+            blocks.clear();
+            sequencesById.clear();
+            senders.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Message view(Block block, long sequence, int slot) {
+        return Message.builder()
+                .messageId(unpackId(block.ids[slot]))
+                .sequence(sequence)
+                .content(block.content(slot))
+                .senderId(senders.get(block.senders[slot]))
+                .timestamp(Instant.ofEpochMilli(block.timestamps[slot]))
+                .expiresAt(Instant.ofEpochMilli(block.expiresAt[slot]))
+                .build();
+    }
+
+    /**
+     * Bijective base-63 - every ID of up to 10 alphabet characters maps to a
+     * distinct positive long; 0 means the ID cannot be packed
+     */
+    static long packId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_PACKED_ID_LENGTH) {
+            return 0;
+        }
+        long packed = 0;
+        for (int i = 0; i < id.length(); i++) {
+            int digit = ID_CHARACTERS.indexOf(id.charAt(i)) + 1;
+            if (digit == 0) {
+                return 0;
+            }
+            packed = packed * ID_RADIX + digit;
+        }
+        return packed;
+    }
+
+    static String unpackId(long packed) {
+        char[] id = new char[MAX_PACKED_ID_LENGTH];
+        int position = id.length;
+        while (packed > 0) {
+            id[--position] = ID_CHARACTERS.charAt((int) (packed % ID_RADIX) - 1);
+            packed /= ID_RADIX;
+        }
+        return new String(id, position, id.length - position);
+    }
+
+    /**
+     * One run of BLOCK_SIZE consecutive sequences, column by column.
+     * A zero ID marks a removed slot.
+     */
+    private static final class Block {
+
+        private final long[] ids = new long[BLOCK_SIZE];
+        private final long[] timestamps = new long[BLOCK_SIZE];
+        private final long[] expiresAt = new long[BLOCK_SIZE];
+        private final int[] senders = new int[BLOCK_SIZE];
+        private final long[] contentAddresses = new long[BLOCK_SIZE]; // arena << 32 | offset
+        private final int[] contentLengths = new int[BLOCK_SIZE];
+
+        private byte[][] arenas = new byte[4][];
+        private int arenaCount;
+        private int currentArena = -1;
+        private int currentUsed;
+
+        private int limit;  // Slots below this were written
+        private int swept;  // Slots below this were checked for expiry
+
+        /**
+         * Copy content into the arena, returning its address.
+         * Large content gets an arena of its own.
+         */
+        long store(byte[] bytes) {
+            if (bytes.length > ARENA_SIZE / 2) {
+                return (long) addArena(bytes.clone()) << 32;
+            }
+            if (currentArena < 0 || currentUsed + bytes.length > ARENA_SIZE) {
+                currentArena = addArena(new byte[ARENA_SIZE]);
+                currentUsed = 0;
+            }
+            System.arraycopy(bytes, 0, arenas[currentArena], currentUsed, bytes.length);
+            long address = (long) currentArena << 32 | currentUsed;
+            currentUsed += bytes.length;
+            return address;
+        }
+
+        private int addArena(byte[] arena) {
+            if (arenaCount == arenas.length) {
+                arenas = Arrays.copyOf(arenas, arenaCount * 2);
+            }
+            arenas[arenaCount] = arena;
+            return arenaCount++;
+        }
+
+        String content(int slot) {
+            long address = contentAddresses[slot];
+            return new String(arenas[(int) (address >>> 32)], (int) address, contentLengths[slot],
+                    StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Zero the slot's content in place; arena space comes back with the block
+         */
+        void erase(int slot) {
+            long address = contentAddresses[slot];
+            Arrays.fill(arenas[(int) (address >>> 32)], (int) address, (int) address + contentLengths[slot],
+                    (byte) 0);
+            ids[slot] = 0;
+        }
+
+        void wipe() {
+            for (int i = 0; i < arenaCount; i++) {
+                Arrays.fill(arenas[i], (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Sender IDs stored once each and referenced by index while in use
+     */
+    private static final class SenderDictionary {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private String[] names = new String[16];
+        private int[] references = new int[16];
+        private int[] free = new int[16];
+        private int freeCount;
+        private int next;
+
+        int acquire(String name) {
+            Integer existing = indexes.get(name);
+            if (existing != null) {
+                references[existing]++;
+                return existing;
+            }
+
+            int index;
+            if (freeCount > 0) {
+                index = free[--freeCount];
+            } else {
+                if (next == names.length) {
+                    names = Arrays.copyOf(names, next * 2);
+                    references = Arrays.copyOf(references, next * 2);
+                }
+                index = next++;
+            }
+            names[index] = name;
+            references[index] = 1;
+            indexes.put(name, index);
+            return index;
+        }
+
+        void release(int index) {
+            if (--references[index] > 0) {
+                return;
+            }
+            indexes.remove(names[index]);
+            names[index] = null;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = index;
+        }
+
+        String get(int index) {
+            return names[index];
+        }
+
+        void clear() {
+            indexes.clear();
+            Arrays.fill(names, null);
+            Arrays.fill(references, 0);
+            freeCount = 0;
+            next = 0;
+        }
+    }
+
+    /**
+     * Open-addressing map from packed ID to sequence, both non-zero.
+     * Linear probing with backward-shift deletion, so no tombstones build up.
+     */
+    private static final class LongIndex {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int count;
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return 0;
+        }
+
+        void put(long key, long value) {
+            if (count >= keys.length / 2) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                count++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != key) {
+                if (keys[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+
+            // Pull later entries of the probe run back into the hole
+            int hole = i;
+            for (int j = (hole + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = 0;
+            count--;
+
+            if (keys.length > INITIAL_CAPACITY && count < keys.length / 8) {
+                resize(keys.length / 2);
+            }
+        }
+
+        void clear() {
+            keys = new long[INITIAL_CAPACITY];
+            values = new long[INITIAL_CAPACITY];
+            count = 0;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[capacity];
+            values = new long[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int j = slot(oldKeys[i], mask);
+                    while (keys[j] != 0) {
+                        j = (j + 1) & mask;
+                    }
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return (int) key & mask;
+        }
+    }
+}
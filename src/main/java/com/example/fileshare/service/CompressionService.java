@@ -0,0 +1,199 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.Codec;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Optional compression ahead of encryption.
+ * The codec is picked per file from its name and a trial compression of
+ * the start of the first chunk; formats that are already compressed are stored as-is.
+ */
+@Service
+public class CompressionService {
+
+    // Containers and media that are compressed already
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar", "jar",
+            "docx", "xlsx", "pptx", "odt", "ods", "epub",
+            "png", "jpg", "jpeg", "gif", "webp", "heic",
+            "mp3", "mp4", "m4a", "mov", "mkv", "webm", "ogg"
+    );
+
+    // Trial-compress this much of the first chunk - enough to judge, cheap to waste
+    private static final int SAMPLE_SIZE = 16 * 1024;
+
+    // Sample this compressible or better goes through the fast level
+    private static final double FAST_RATIO = 0.5;
+
+    private final boolean enabled;
+    private final double minSavings;
+
+    private final Map<Codec, LongAdder> files = new ConcurrentHashMap<>();
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+
+    public CompressionService(FileshareProperties properties) {
+        this.enabled = properties.getCompression().isEnabled();
+        this.minSavings = properties.getCompression().getMinSavings();
+        for (Codec codec : Codec.values()) {
+            files.put(codec, new LongAdder());
+        }
+    }
+
+    /**
+     * Pick a codec from the file name and a sample of its first bytes
+     */
+    public Codec choose(String filename, byte[] sample, int length) {
+        if (!enabled || length == 0 || isCompressedFormat(filename, sample, length)) {
+            return Codec.NONE;
+        }
+
+        int sampled = Math.min(length, SAMPLE_SIZE);
+        Deflater deflater = new Deflater(Codec.DEFLATE_FAST.getLevel());
+        long started = System.nanoTime();
+        try {
+            deflater.setInput(sample, 0, sampled);
+            deflater.finish();
+            byte[] scratch = new byte[sampled];
+            long compressed = 0;
+            while (!deflater.finished() && compressed <= sampled) {
+                compressed += deflater.deflate(scratch);
+            }
+
+            double ratio = (double) compressed / sampled;
+            if (ratio > 1 - minSavings) {
+                return Codec.NONE;
+            }
+            // Highly compressible data gains little from more effort
+            return ratio <= FAST_RATIO ? Codec.DEFLATE_FAST : Codec.DEFLATE;
+        } finally {
+            compressNanos.add(System.nanoTime() - started);
+            deflater.end();
+        }
+    }
+
+    private static boolean isCompressedFormat(String filename, byte[] sample, int length) {
+        if (filename != null) {
+            int dot = filename.lastIndexOf('.');
+            if (dot >= 0 && COMPRESSED_EXTENSIONS.contains(filename.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return length >= 4 && (
+                (sample[0] == 'P' && sample[1] == 'K' && sample[2] == 3 && sample[3] == 4)                  // zip
+                        || ((sample[0] & 0xff) == 0x1f && (sample[1] & 0xff) == 0x8b)                       // gzip
+                        || ((sample[0] & 0xff) == 0x89 && sample[1] == 'P' && sample[2] == 'N' && sample[3] == 'G')
+                        || ((sample[0] & 0xff) == 0xff && (sample[1] & 0xff) == 0xd8 && (sample[2] & 0xff) == 0xff)
+                        || (sample[0] == '7' && sample[1] == 'z' && (sample[2] & 0xff) == 0xbc));
+    }
+
+    /**
+     * Stream that yields the compressed form of the plaintext stream
+     */
+    public InputStream compressing(InputStream plain, Codec codec) {
+        return codec == Codec.NONE ? plain : new DeflatingInputStream(plain, codec.getLevel());
+    }
+
+    /**
+     * Record the outcome of one stored file
+     */
+    public void recordStored(Codec codec, long plainBytes, long storedSize) {
+        files.get(codec).increment();
+        if (codec != Codec.NONE) {
+            inputBytes.add(plainBytes);
+            storedBytes.add(storedSize);
+        }
+    }
+
+    public long getFileCount(Codec codec) {
+        return files.get(codec).sum();
+    }
+
+    /**
+     * Plaintext bytes of files that were compressed
+     */
+    public long getInputBytes() {
+        return inputBytes.sum();
+    }
+
+    /**
+     * What those files take after compression
+     */
+    public long getStoredBytes() {
+        return storedBytes.sum();
+    }
+
+    public long getCompressNanos() {
+        return compressNanos.sum();
+    }
+
+    /**
+     * Pull-based deflate that only counts time spent compressing, not reading.
+     * Closing ends the deflater but leaves the source open for its owner.
+     */
+    private class DeflatingInputStream extends FilterInputStream {
+
+        private final Deflater deflater;
+        private final byte[] input = new byte[EncryptionService.SEGMENT_SIZE];
+        private boolean closed;
+        private boolean finishing;
+
+        DeflatingInputStream(InputStream in, int level) {
+            super(in);
+            this.deflater = new Deflater(level);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (!deflater.finished()) {
+                if (!finishing && deflater.needsInput()) {
+                    int read = in.readNBytes(input, 0, input.length);
+                    if (read == 0) {
+                        finishing = true;
+                        deflater.finish();
+                    } else {
+                        deflater.setInput(input, 0, read);
+                    }
+                }
+
+                long started = System.nanoTime();
+                int produced = deflater.deflate(buffer, offset, length);
+                compressNanos.add(System.nanoTime() - started);
+                if (produced > 0) {
+                    return produced;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                java.util.Arrays.fill(input, (byte) 0);
+                deflater.end();
+            }
+        }
+    }
+}
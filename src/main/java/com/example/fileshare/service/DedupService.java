@@ -0,0 +1,156 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.Codec;
+import com.example.fileshare.storage.CiphertextBlob;
+import com.example.fileshare.storage.SharedCiphertext;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content index for deduplicating identical uploads.
+ * Plaintexts are identified by an HMAC under a per-process secret, so the
+ * index reveals nothing without this node's memory. The first upload of a
+ * content keeps its ciphertext and key; later identical uploads get a new
+ * handle to the same blob and their own copy of the key.
+ * NO DISK PERSISTENCE - index and secret live in RAM only
+ */
+@Service
+public class DedupService {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final boolean enabled;
+    private final SecretKeySpec indexKey;
+    private final Map<String, Content> index = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public DedupService(FileshareProperties properties) {
+        this.enabled = properties.getDedup().isEnabled();
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.indexKey = new SecretKeySpec(secret, MAC_ALGORITHM);
+        java.util.Arrays.fill(secret, (byte) 0);
+    }
+
+    /**
+     * Stored content plus the key material it was encrypted with
+     */
+    private static final class Content {
+        private final SharedCiphertext shared;
+        private final Codec codec;
+        private final byte[] key;
+        private final byte[] iv;
+
+        private Content(SharedCiphertext shared, Codec codec, byte[] key, byte[] iv) {
+            this.shared = shared;
+            this.codec = codec;
+            this.key = key;
+            this.iv = iv;
+        }
+    }
+
+    /**
+     * What a file should be published with; key and IV are its own copies
+     */
+    public record Share(CiphertextBlob ciphertext, Codec codec, byte[] key, byte[] iv, boolean hit) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Fresh MAC to feed the plaintext through while it is encrypted
+     */
+    public Mac newDigest() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(indexKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC unavailable", e);
+        }
+    }
+
+    /**
+     * Look up freshly stored content by digest.
+     * On a hit the caller must release its own ciphertext and key and use the
+     * shared ones; on a miss its ciphertext becomes the shared copy.
+     */
+    public Share share(byte[] digest, CiphertextBlob ciphertext, Codec codec, byte[] key, byte[] iv) {
+        String contentId = HexFormat.of().formatHex(digest);
+        for (;;) {
+            Content existing = index.get(contentId);
+            if (existing != null) {
+                CiphertextBlob handle = existing.shared.acquire();
+                if (handle != null) {
+                    hits.increment();
+                    return new Share(handle, existing.codec, existing.key.clone(), existing.iv.clone(), true);
+                }
+                // Last reference went away concurrently - replace the entry
+                index.remove(contentId, existing);
+                continue;
+            }
+
+            Content[] created = new Content[1];
+            SharedCiphertext shared = new SharedCiphertext(ciphertext, () -> forget(contentId, created[0]));
+            created[0] = new Content(shared, codec, key.clone(), iv.clone());
+            if (index.putIfAbsent(contentId, created[0]) == null) {
+                misses.increment();
+                return new Share(shared.getOwnerHandle(), codec, key, iv, false);
+            }
+        }
+    }
+
+    /**
+     * Last file holding the content is gone - drop it and wipe the master key
+     */
+    private void forget(String contentId, Content content) {
+        index.remove(contentId, content);
+        java.util.Arrays.fill(content.key, (byte) 0);
+        java.util.Arrays.fill(content.iv, (byte) 0);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * Distinct contents currently stored
+     */
+    public int getUniqueCount() {
+        return index.size();
+    }
+
+    /**
+     * Ciphertext bytes not stored thanks to sharing
+     */
+    public long getSavedBytes() {
+        long saved = 0;
+        for (Content content : index.values()) {
+            saved += Math.max(0, content.shared.getReferences() - 1) * content.shared.sizeInBytes();
+        }
+        return saved;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.fileshare.service;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hashed timing wheel for auto-delete deadlines.
+ * Each tick only visits the bucket that is due, so cost follows the
+ * number of expiring items rather than the number of stored items.
+ * Items are evicted within about one tick of their deadline.
+ */
+@Service
+public class ExpiryScheduler {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 4096; // ~68 minutes per revolution
+
+    private final Bucket[] buckets = new Bucket[WHEEL_SIZE];
+    private final AtomicLong pending = new AtomicLong();
+    private final LongAdder fired = new LongAdder();
+    private volatile long processedTick;
+
+    public ExpiryScheduler() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.processedTick = System.currentTimeMillis() / TICK_MILLIS;
+    }
+
+    /**
+     * Run the action once the deadline has passed.
+     * Actions must tolerate the item having been removed already.
+     */
+    public void schedule(Instant deadline, Runnable action) {
+        long deadlineTick = Math.floorDiv(deadline.toEpochMilli() + TICK_MILLIS - 1, TICK_MILLIS);
+        pending.incrementAndGet();
+
+        long tick = Math.max(deadlineTick, processedTick + 1);
+        while (true) {
+            Entry entry = new Entry(tick, action);
+            Bucket bucket = buckets[(int) (tick & (WHEEL_SIZE - 1))];
+            bucket.add(entry);
+            // The wheel may have finished this tick between the read and the add;
+            // if the entry is still there it would wait a whole revolution
+            long processed = processedTick;
+            if (tick > processed || !bucket.remove(entry)) {
+                return;
+            }
+            tick = processed + 1;
+        }
+    }
+
+    /**
+     * Advance the wheel and fire every entry that is due
+     */
+    @Scheduled(fixedRate = TICK_MILLIS)
+    @Timed("fileshare.cleanup.run")
+    public void tick() {
+        advanceTo(System.currentTimeMillis());
+    }
+
+    /**
+     * Fire everything due up to the given wall-clock time
+     */
+    public void advanceTo(long epochMillis) {
+        long now = epochMillis / TICK_MILLIS;
+
+        for (long tick = processedTick + 1; tick <= now; tick++) {
+            Bucket bucket = buckets[(int) (tick & (WHEEL_SIZE - 1))];
+
+            // Entries for later revolutions are held back, so the bucket drains to empty
+            List<Entry> later = new ArrayList<>();
+            drain(bucket, now, later);
+            processedTick = tick;
+            // Catches entries added before schedule() could see the new tick
+            drain(bucket, now, later);
+            bucket.addAll(later);
+        }
+    }
+
+    private void drain(Bucket bucket, long now, List<Entry> later) {
+        Entry entry;
+        while ((entry = bucket.poll()) != null) {
+            if (entry.tick > now) {
+                later.add(entry);
+                continue;
+            }
+
+            pending.decrementAndGet();
+            fired.increment();
+            try {
+                entry.action.run();
+            } catch (RuntimeException e) {
+                // Keep the wheel turning
+            }
+        }
+    }
+
+    /**
+     * Deadlines registered and not yet fired
+     */
+    public long getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Whole ticks the wheel is behind the clock, in milliseconds
+     */
+    public long getLagMillis() {
+        long behind = System.currentTimeMillis() / TICK_MILLIS - processedTick - 1;
+        return Math.max(0, behind) * TICK_MILLIS;
+    }
+
+    /**
+     * Deadlines fired since startup
+     */
+    public long getFiredCount() {
+        return fired.sum();
+    }
+
+    private static final class Bucket extends ConcurrentLinkedQueue<Entry> {
+    }
+
+    /**
+     * Compared by identity, so schedule() only ever removes its own entry
+     */
+    private static final class Entry {
+
+        private final long tick;
+        private final Runnable action;
+
+        Entry(long tick, Runnable action) {
+            this.tick = tick;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.fileshare.service;
+
+import java.security.SecureRandom;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Random alphanumeric IDs reserved atomically by the caller.
+ * The ID length grows with occupancy so a random pick collides at most
+ * half of the time, and every call gives up after a bounded number of
+ * attempts instead of recursing.
+ */
+public class IdAllocator {
+
+    private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int ALPHABET = CHARACTERS.length();
+    private static final int UNBIASED_LIMIT = 256 - (256 % ALPHABET); // 248
+    private static final double MAX_LOAD = 0.5;
+    private static final int ATTEMPTS_PER_LENGTH = 8;
+    private static final int MAX_DRAWS_PER_ATTEMPT = 4096;
+
+    private final int baseLength;
+    private final int maxLength;
+    private final EntropyStripe[] stripes;
+
+    public IdAllocator(int baseLength, int maxLength) {
+        this.baseLength = baseLength;
+        this.maxLength = maxLength;
+
+        // Independent SecureRandom per stripe - no single lock shared by all uploads
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+        this.stripes = new EntropyStripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new EntropyStripe();
+        }
+    }
+
+    /**
+     * Pick IDs until tryClaim accepts one (e.g. map.putIfAbsent(id, value) == null)
+     *
+     * @param occupancy number of IDs currently in use
+     */
+    public String allocate(IntSupplier occupancy, Predicate<String> tryClaim) {
+        return allocate(occupancy, id -> true, tryClaim);
+    }
+
+    /**
+     * Same, drawing only from IDs the eligible predicate accepts (e.g. owned
+     * by this node). Ineligible draws are skipped and do not count as
+     * collisions, so they never make IDs longer.
+     *
+     * @param occupancy IDs in use across the whole space, not just the eligible part
+     */
+    public String allocate(IntSupplier occupancy, Predicate<String> eligible, Predicate<String> tryClaim) {
+        for (int length = lengthFor(occupancy.getAsInt()); length <= maxLength; length++) {
+            for (int attempt = 0; attempt < ATTEMPTS_PER_LENGTH; attempt++) {
+                String id = eligibleId(length, eligible);
+                if (tryClaim.test(id)) {
+                    return id;
+                }
+            }
+        }
+        throw new IllegalStateException("ID space exhausted");
+    }
+
+    private String eligibleId(int length, Predicate<String> eligible) {
+        for (int draw = 0; draw < MAX_DRAWS_PER_ATTEMPT; draw++) {
+            String id = randomId(length);
+            if (eligible.test(id)) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("No eligible ID found");
+    }
+
+    /**
+     * Shortest length whose ID space keeps occupancy under MAX_LOAD
+     */
+    private int lengthFor(int occupied) {
+        int length = baseLength;
+        double space = Math.pow(ALPHABET, length);
+        while (length < maxLength && occupied > space * MAX_LOAD) {
+            length++;
+            space *= ALPHABET;
+        }
+        return length;
+    }
+
+    private String randomId(int length) {
+        EntropyStripe stripe = stripes[(int) Thread.currentThread().threadId() & (stripes.length - 1)];
+        char[] id = new char[length];
+
+        stripe.lock.lock();
+        try {
+            for (int i = 0; i < length; i++) {
+                int value;
+                do {
+                    value = stripe.nextByte();
+                } while (value >= UNBIASED_LIMIT); // reject to avoid modulo bias
+                id[i] = CHARACTERS.charAt(value % ALPHABET);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return new String(id);
+    }
+
+    /**
+     * SecureRandom with a small buffer so most IDs need no provider call
+     */
+    private static final class EntropyStripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom random = new SecureRandom();
+        private final byte[] buffer = new byte[256];
+        private int position = buffer.length;
+
+        int nextByte() {
+            if (position == buffer.length) {
+                random.nextBytes(buffer);
+                position = 0;
+            }
+            return buffer[position++] & 0xFF;
+        }
+    }
+}
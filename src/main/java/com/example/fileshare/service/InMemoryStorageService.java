@@ -1,15 +1,36 @@
 package com.example.fileshare.service;
 
+import com.example.fileshare.cluster.ClusterRing;
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.dto.FileKeyResponse;
+import com.example.fileshare.model.Codec;
 import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.model.FileState;
+import com.example.fileshare.storage.CiphertextBlob;
+import com.example.fileshare.storage.CiphertextStore;
+import com.example.fileshare.storage.OutputStreamChannel;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterOutputStream;
 
 /**
  * 100% IN-MEMORY storage
@@ -20,137 +41,530 @@ import java.security.SecureRandom;
 @RequiredArgsConstructor
 public class InMemoryStorageService {
 
-    private final Map<String, EncryptedFile> fileStore = new ConcurrentHashMap<>();
+    private final ShardedFileStore fileStore =
+            new ShardedFileStore(Runtime.getRuntime().availableProcessors() * 4);
     private final com.example.fileshare.service.EncryptionService encryptionService;
+    private final CompressionService compressionService;
+    private final DedupService dedupService;
+    private final CiphertextStore ciphertextStore;
+    private final StorageBudget storageBudget;
+    private final ExpiryScheduler expiryScheduler;
+    private final TrafficStats trafficStats;
+    private final ClusterRing clusterRing;
+    private final SegmentWorkers segmentWorkers;
+    private final FileshareProperties properties;
 
     private static final long FILE_LIFETIME_MINUTES = 60;
-    private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    public static final long MAX_FILE_SIZE = 15 * 1024 * 1024;
     private static final int FILE_ID_LENGTH = 3;
-    private final SecureRandom secureRandom = new SecureRandom();
+    private static final int MAX_FILE_ID_LENGTH = 8;
+    private final IdAllocator idAllocator = new IdAllocator(FILE_ID_LENGTH, MAX_FILE_ID_LENGTH);
 
     /**
-     * Generate short unique file ID (10 characters)
+     * Reserve a short unique file ID for the file and publish it atomically.
+     * In a cluster only IDs this node owns are drawn, so the ID routes here;
+     * ID length follows the estimated cluster-wide file count.
      */
-    private String generateShortFileId() {
-        StringBuilder fileId = new StringBuilder(FILE_ID_LENGTH);
-
-        // Generate random alphanumeric ID
-        for (int i = 0; i < FILE_ID_LENGTH; i++) {
-            int index = secureRandom.nextInt(CHARACTERS.length());
-            fileId.append(CHARACTERS.charAt(index));
-        }
-
-        // Check for collision (very rare)
-        String id = fileId.toString();
-        if (fileStore.containsKey(id)) {
-            return generateShortFileId(); // Retry if collision
-        }
-
-        return id;
+    private String claimFileId(EncryptedFile file) {
+        return idAllocator.allocate(() -> fileStore.size() * clusterRing.getNodeCount(), clusterRing::isLocal, id -> {
+            file.assignId(id);
+            return fileStore.putIfAbsent(id, file);
+        });
     }
 
     /**
      * Store encrypted file in memory
      */
+    @Timed("fileshare.storage.operation")
     public String storeFile(String filename, byte[] data) throws Exception {
-        // Generate SHORT unique file ID (10 characters)
-        String fileId = generateShortFileId();
+        try {
+            return storeFile(filename, new ByteArrayInputStream(data));
+        } finally {
+            // Securely wipe original data from method scope
+            encryptionService.secureWipe(data);
+        }
+    }
 
+    /**
+     * Store a streamed upload in memory.
+     * Reads fixed-size chunks and seals each one as its own GCM segment,
+     * so the full plaintext is never held on heap. Chunks are read in order
+     * and sealed in parallel on the segment workers, a window at a time;
+     * sealed segments are appended in order. The first chunk decides
+     * whether the stream is compressed before it is cut into segments.
+     * With dedup on, the plaintext is MACed on the way through and identical
+     * content already in memory is shared instead of stored again.
+     */
+    @Timed("fileshare.storage.operation")
+    public String storeFile(String filename, InputStream upload) throws Exception {
         // Generate unique encryption key and IV
         byte[] key = encryptionService.generateKey();
         byte[] iv = encryptionService.generateIV();
 
-        // Encrypt the file data
-        byte[] encryptedData = encryptionService.encrypt(data, key, iv);
+        // Chunk buffers go back to the queue once sealed; one chunk of
+        // look-ahead tells us which segment is the last one
+        Queue<byte[]> idle = new ConcurrentLinkedQueue<>();
+        List<byte[]> buffers = new ArrayList<>();
+        byte[] current = takeBuffer(idle, buffers, EncryptionService.SEGMENT_SIZE);
+        byte[] sample = null;
+        CiphertextBlob ciphertext = ciphertextStore.newBlob();
+        SegmentWindow<byte[]> window = segmentWorkers.window(ciphertext::append);
+        PlaintextInputStream plain = new PlaintextInputStream(
+                upload, MAX_FILE_SIZE, dedupService.isEnabled() ? dedupService.newDigest() : null);
+        InputStream in = plain;
+        Codec codec;
+        long stored = 0;
+
+        try {
+            int currentLength = in.readNBytes(current, 0, current.length);
+            codec = compressionService.choose(filename, current, currentLength);
+            if (codec != Codec.NONE) {
+                // Put the sampled chunk back in front of the rest and segment the compressed stream
+                sample = Arrays.copyOf(current, currentLength);
+                in = compressionService.compressing(
+                        new SequenceInputStream(new ByteArrayInputStream(sample), plain), codec);
+                currentLength = in.readNBytes(current, 0, current.length);
+            }
+
+            for (long index = 0; ; index++) {
+                byte[] next = takeBuffer(idle, buffers, EncryptionService.SEGMENT_SIZE);
+                int nextLength = currentLength == current.length
+                        ? in.readNBytes(next, 0, next.length)
+                        : 0;
+                boolean last = nextLength == 0;
+                stored += currentLength;
+
+                byte[] chunk = current;
+                int chunkLength = currentLength;
+                long chunkIndex = index;
+                window.submit(() -> {
+                    try {
+                        return encryptionService.encryptSegment(chunk, chunkLength, key, iv, chunkIndex, last);
+                    } finally {
+                        encryptionService.zeroize(chunk);
+                        idle.add(chunk);
+                    }
+                }, loneSegment(index == 0, last));
+                if (last) {
+                    window.finish();
+                    ciphertext.seal();
+                    break;
+                }
+
+                current = next;
+                currentLength = nextLength;
+            }
+        } catch (Exception e) {
+            // Let running segments finish before their key is wiped
+            window.cancel();
+            ciphertext.release();
+            encryptionService.secureWipe(key);
+            throw e;
+        } finally {
+            // Wipe plaintext chunk buffers
+            buffers.forEach(encryptionService::zeroize);
+            if (sample != null) {
+                encryptionService.zeroize(sample);
+                in.close();
+            }
+        }
+
+        long size = plain.getCount();
+        compressionService.recordStored(codec, size, stored);
+        if (plain.getMac() == null) {
+            return publish(filename, ciphertext, codec, key, iv, size, ciphertext.sizeInBytes());
+        }
+
+        DedupService.Share share = dedupService.share(plain.getMac().doFinal(), ciphertext, codec, key, iv);
+        if (share.hit()) {
+            // Same content is already in memory - drop this copy
+            ciphertext.release();
+            encryptionService.secureWipe(key);
+            encryptionService.secureWipe(iv);
+            return publish(filename, share.ciphertext(), share.codec(), share.key(), share.iv(), size, 0);
+        }
+        return publish(filename, share.ciphertext(), codec, key, iv, size, ciphertext.sizeInBytes());
+    }
+
+    /**
+     * Store segments that were already encrypted elsewhere (upload sessions).
+     * Segments must be in order; ownership of the arrays passes to the store.
+     */
+    @Timed("fileshare.storage.operation")
+    public String storeEncrypted(String filename, long size, byte[] key, byte[] iv,
+                                 List<byte[]> segments) {
+        CiphertextBlob ciphertext = ciphertextStore.newBlob();
+        try {
+            segments.forEach(ciphertext::append);
+            ciphertext.seal();
+        } catch (RuntimeException e) {
+            ciphertext.release();
+            throw e;
+        }
+        compressionService.recordStored(Codec.NONE, size, size);
+        return publish(filename, ciphertext, Codec.NONE, key, iv, size, ciphertext.sizeInBytes());
+    }
 
+    /**
+     * Charge the budget, reserve an ID and schedule auto-delete
+     * (shared ciphertext is charged once, by the file that stored it)
+     */
+    private String publish(String filename, CiphertextBlob ciphertext, Codec codec,
+                           byte[] key, byte[] iv, long size, long chargedBytes) {
         // Create encrypted file object
         EncryptedFile encryptedFile = EncryptedFile.builder()
-                .fileId(fileId)
                 .originalFilename(filename)
-                .encryptedData(encryptedData)
+                .ciphertext(ciphertext)
+                .segmentSize(EncryptionService.SEGMENT_SIZE)
+                .codec(codec)
                 .encryptionKey(key)
                 .iv(iv)
-                .size(data.length)
+                .size(size)
                 .createdAt(Instant.now())
                 .expiresAt(Instant.now().plus(FILE_LIFETIME_MINUTES, ChronoUnit.MINUTES))
-                .downloaded(false)
                 .build();
 
-        // Store in memory
-        fileStore.put(fileId, encryptedFile);
-
-        // Securely wipe original data from method scope
-        encryptionService.secureWipe(data);
+        // Store in memory under a freshly reserved ID
+        storageBudget.chargeReserved(chargedBytes);
+        String fileId = claimFileId(encryptedFile);
+        expiryScheduler.schedule(encryptedFile.getExpiresAt(), () -> expireFile(fileId, encryptedFile));
+        trafficStats.recordUpload();
 
         return fileId;
     }
 
+    /**
+     * Put back a file loaded from a snapshot under its old ID.
+     * Expired files, IDs already taken and files that no longer fit the
+     * budget are refused; the caller then wipes what it loaded.
+     */
+    public boolean restoreFile(String fileId, EncryptedFile file) {
+        long bytes = file.getCiphertext().sizeInBytes();
+        // Parts load in parallel - the budget check and charge must be one step
+        if (file.isExpired() || !storageBudget.charge(bytes)) {
+            return false;
+        }
+
+        file.assignId(fileId);
+        if (!fileStore.putIfAbsent(fileId, file)) {
+            storageBudget.credit(bytes);
+            return false;
+        }
+        expiryScheduler.schedule(file.getExpiresAt(), () -> expireFile(fileId, file));
+        return true;
+    }
+
     /**
      * Retrieve and decrypt file from memory
      */
+    @Timed("fileshare.storage.operation")
     public EncryptedFile retrieveFile(String fileId) throws Exception {
         EncryptedFile encryptedFile = fileStore.get(fileId);
 
-        if (encryptedFile == null) {
+        // Claimed files are mid-download and already gone for everyone else
+        if (encryptedFile == null
+                || encryptedFile.getState() == FileState.CLAIMED
+                || encryptedFile.getState() == FileState.DELETED) {
             throw new RuntimeException("File not found");
         }
 
         if (encryptedFile.isExpired()) {
-            deleteFile(fileId);
+            delete(fileId, encryptedFile);
             throw new RuntimeException("File has expired");
         }
 
         return encryptedFile;
     }
 
+    /**
+     * Take a retrieved file for download. Under FIRST_GET this is an atomic
+     * claim, so concurrent requests for the same ID deliver it exactly once.
+     *
+     * @return false if another request got there first
+     */
+    public boolean claimDownload(EncryptedFile file) {
+        if (properties.getDownload().getCompletion() == FileshareProperties.Completion.FIRST_GET) {
+            return file.transition(FileState.AVAILABLE, FileState.CLAIMED);
+        }
+        return file.getState() != FileState.DELETED;
+    }
+
     /**
      * Decrypt file data
      */
+    @Timed("fileshare.storage.operation")
     public byte[] decryptFile(EncryptedFile file) throws Exception {
-        return encryptionService.decrypt(
-                file.getEncryptedData(),
-                file.getEncryptionKey(),
-                file.getIv()
-        );
+        requireKey(file);
+        byte[] decrypted = new byte[Math.toIntExact(file.getSize())];
+        Inflater inflater = file.getCodec() == Codec.NONE ? null : new Inflater();
+        int[] offset = {0};
+        try {
+            decryptSegments(file, 0, file.getCiphertext().segmentCount() - 1, (index, segment, length) -> {
+                if (inflater == null) {
+                    System.arraycopy(segment, 0, decrypted, offset[0], length);
+                    offset[0] += length;
+                    return;
+                }
+
+                // Inflate straight into the result, no intermediate copy
+                inflater.setInput(segment, 0, length);
+                while (!inflater.needsInput() && !inflater.finished()) {
+                    int inflated = inflater.inflate(decrypted, offset[0], decrypted.length - offset[0]);
+                    if (inflated == 0 && !inflater.needsInput() && !inflater.finished()) {
+                        throw new IllegalStateException("Corrupt compressed file");
+                    }
+                    offset[0] += inflated;
+                }
+            });
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+        return decrypted;
     }
 
     /**
-     * Delete file and mark for download
+     * Decrypt file segment by segment straight into the output stream.
+     * Only a window of plaintext segments is alive at a time; compressed
+     * files are inflated on the way out.
      */
-    public void markAsDownloaded(String fileId) {
-        EncryptedFile file = fileStore.get(fileId);
-        if (file != null) {
-            file.markAsDownloaded();
-            // Auto-delete immediately after download
-            deleteFile(fileId);
+    @Timed("fileshare.storage.operation")
+    public void decryptTo(EncryptedFile file, OutputStream out) throws Exception {
+        requireKey(file);
+        Inflater inflater = file.getCodec() == Codec.NONE ? null : new Inflater();
+        InflaterOutputStream inflating = inflater == null
+                ? null
+                : new InflaterOutputStream(out, inflater, file.getSegmentSize());
+        OutputStream target = inflating == null ? out : inflating;
+        try {
+            decryptSegments(file, 0, file.getCiphertext().segmentCount() - 1,
+                    (index, segment, length) -> target.write(segment, 0, length));
+            if (inflating != null) {
+                inflating.finish();
+            }
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
         }
+        out.flush();
     }
 
     /**
-     * Securely delete file from memory
+     * Decrypt only the segments covering plaintext bytes [start, end)
      */
-    public void deleteFile(String fileId) {
-        EncryptedFile file = fileStore.remove(fileId);
-        if (file != null) {
-            // Securely wipe sensitive data
-            file.clearSensitiveData();
+    @Timed("fileshare.storage.operation")
+    public void decryptRangeTo(EncryptedFile file, long start, long end, OutputStream out) throws Exception {
+        requireKey(file);
+        if (file.getCodec() != Codec.NONE) {
+            throw new IllegalStateException("Compressed files have no byte ranges");
         }
+        int segmentSize = file.getSegmentSize();
+        int firstSegment = (int) (start / segmentSize);
+        int lastSegment = (int) ((end - 1) / segmentSize);
+
+        decryptSegments(file, firstSegment, lastSegment, (index, segment, length) -> {
+            long segmentStart = (long) index * segmentSize;
+            int from = (int) Math.max(0, start - segmentStart);
+            int to = (int) Math.min(length, end - segmentStart);
+            out.write(segment, from, to - from);
+        });
+        out.flush();
+    }
+
+    /**
+     * Plaintext of one segment, handed over in segment order
+     */
+    @FunctionalInterface
+    private interface PlaintextSink {
+        void accept(int index, byte[] segment, int length) throws Exception;
+    }
+
+    private record OpenedSegment(int index, byte[] buffer, int length) {
     }
 
     /**
-     * Auto-cleanup expired files every 5 minutes
-     * Runs in background
+     * Open segments first..last on the segment workers, a window at a time,
+     * and pass each plaintext to the sink in order on this thread.
+     * Plaintext buffers are reused across the window and wiped at the end.
+     * The key is held for the whole run, so it cannot be released and
+     * wiped under a stream that is still decrypting.
      */
-    @Scheduled(fixedDelay = 300000) // 5 minutes
-    public void cleanupExpiredFiles() {
-        fileStore.entrySet().removeIf(entry -> {
-            EncryptedFile file = entry.getValue();
-            if (file.shouldAutoDelete()) {
-                file.clearSensitiveData();
-                return true;
+    private void decryptSegments(EncryptedFile file, int first, int last, PlaintextSink sink) throws Exception {
+        if (!file.beginDecrypt()) {
+            throw new IllegalStateException("Key already released");
+        }
+        try {
+            openSegments(file, first, last, sink);
+        } finally {
+            file.endDecrypt();
+        }
+    }
+
+    private void openSegments(EncryptedFile file, int first, int last, PlaintextSink sink) throws Exception {
+        CiphertextBlob ciphertext = file.getCiphertext();
+        int segmentCount = ciphertext.segmentCount();
+        byte[] key = file.getEncryptionKey();
+        byte[] iv = file.getIv();
+
+        Queue<byte[]> idle = new ConcurrentLinkedQueue<>();
+        List<byte[]> buffers = new ArrayList<>();
+        SegmentWindow<OpenedSegment> window = segmentWorkers.window(opened -> {
+            try {
+                sink.accept(opened.index(), opened.buffer(), opened.length());
+            } finally {
+                idle.add(opened.buffer());
             }
-            return false;
         });
+        try {
+            for (int index = first; index <= last; index++) {
+                byte[] buffer = takeBuffer(idle, buffers, file.getSegmentSize());
+                int segmentIndex = index;
+                window.submit(() -> new OpenedSegment(segmentIndex, buffer, encryptionService.decryptSegment(
+                        ciphertext.readSegment(segmentIndex),
+                        buffer,
+                        key,
+                        iv,
+                        segmentIndex,
+                        segmentIndex == segmentCount - 1
+                )), loneSegment(index == first, index == last));
+            }
+            window.finish();
+        } catch (Exception e) {
+            window.cancel();
+            throw e;
+        } finally {
+            buffers.forEach(encryptionService::zeroize);
+        }
+    }
+
+    /**
+     * Run a lone segment inline - it gains nothing from a hand-off to the workers
+     */
+    private static boolean loneSegment(boolean first, boolean last) {
+        return first && last;
+    }
+
+    /**
+     * Reuse an idle segment buffer, or allocate one while the window fills
+     */
+    private static byte[] takeBuffer(Queue<byte[]> idle, List<byte[]> buffers, int size) {
+        byte[] buffer = idle.poll();
+        if (buffer == null) {
+            buffer = new byte[size];
+            buffers.add(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Hand out key + IV once, for decryption in the browser.
+     * The server's copy is wiped, so from then on only the raw
+     * ciphertext download can serve the file.
+     */
+    public FileKeyResponse releaseKey(String fileId) throws Exception {
+        EncryptedFile file = retrieveFile(fileId);
+        if (!file.markKeyReleased()) {
+            throw new IllegalStateException(file.isKeyReleased() ? "Key already released" : "File is being downloaded");
+        }
+
+        // Won the handout - nobody else reads the key from here on
+        FileKeyResponse response = FileKeyResponse.builder()
+                .fileId(fileId)
+                .filename(file.getOriginalFilename())
+                .key(Base64.getEncoder().encodeToString(file.getEncryptionKey()))
+                .iv(Base64.getEncoder().encodeToString(file.getIv()))
+                .segmentSize(file.getSegmentSize())
+                .size(file.getSize())
+                .ciphertextSize(file.getCiphertext().sizeInBytes())
+                .codec(file.getCodec().name())
+                .build();
+
+        encryptionService.secureWipe(file.getEncryptionKey());
+        return response;
+    }
+
+    /**
+     * Stream stored ciphertext as-is - no decryption, no per-segment heap copies
+     */
+    @Timed("fileshare.storage.operation")
+    public void transferCiphertext(EncryptedFile file, OutputStream out) throws IOException {
+        file.getCiphertext().transferTo(new OutputStreamChannel(out));
+        out.flush();
+    }
+
+    private static void requireKey(EncryptedFile file) {
+        if (file.isKeyReleased()) {
+            throw new IllegalStateException("Key already released");
+        }
+    }
+
+    /**
+     * A download request for [start, end) ended - apply the completion policy.
+     * Incomplete transfers only count under FIRST_GET, which deletes regardless.
+     */
+    public void finishDownload(String fileId, EncryptedFile file, long start, long end, boolean completed) {
+        FileshareProperties.Download download = properties.getDownload();
+        if (completed) {
+            trafficStats.recordDownload();
+        }
+        switch (download.getCompletion()) {
+            case FIRST_GET -> {
+                // Auto-delete immediately after download
+                delete(fileId, file);
+            }
+            case ALL_RANGES -> {
+                if (completed && file.getServedRanges().add(start, end, file.getSize())) {
+                    delete(fileId, file);
+                }
+            }
+            case GRACE -> {
+                if (completed && file.transition(FileState.AVAILABLE, FileState.DOWNLOADED)) {
+                    expiryScheduler.schedule(Instant.now().plus(download.getGracePeriod()),
+                            () -> expireFile(fileId, file));
+                }
+            }
+        }
+    }
+
+    /**
+     * Securely delete file from memory
+     *
+     * @return true if this call did the delete
+     */
+    public boolean deleteFile(String fileId) {
+        EncryptedFile file = fileStore.get(fileId);
+        return file != null && delete(fileId, file);
+    }
+
+    /**
+     * Whoever moves the file to DELETED removes and wipes it - exactly once
+     */
+    private boolean delete(String fileId, EncryptedFile file) {
+        if (!file.markDeleted()) {
+            return false;
+        }
+        fileStore.remove(fileId, file);
+        wipe(file);
+        return true;
+    }
+
+    /**
+     * Securely wipe sensitive data and give its memory back to the budget
+     * (spilled ciphertext was credited when it left RAM)
+     */
+    private void wipe(EncryptedFile file) {
+        storageBudget.credit(file.getCiphertext().release());
+        file.clearSensitiveData();
+    }
+
+    /**
+     * Auto-delete when the expiry deadline fires
+     * No-op if the file was already deleted
+     */
+    private void expireFile(String fileId, EncryptedFile file) {
+        delete(fileId, file);
     }
 
     /**
@@ -160,11 +574,79 @@ public class InMemoryStorageService {
         return fileStore.size();
     }
 
+    /**
+     * Number of independent parts the file index is split into
+     */
+    public int getShardCount() {
+        return fileStore.getShardCount();
+    }
+
+    /**
+     * Visit the files of one index shard, weakly consistent with concurrent changes
+     */
+    public void forEachFile(int shard, BiConsumer<String, EncryptedFile> action) {
+        fileStore.shard(shard).forEach(action);
+    }
+
     /**
      * Emergency - Clear all files from memory
      */
     public void clearAll() {
-        fileStore.values().forEach(EncryptedFile::clearSensitiveData);
-        fileStore.clear();
+        fileStore.forEach((fileId, file) -> delete(fileId, file));
+    }
+
+    /**
+     * Counts (and optionally MACs) plaintext bytes and rejects uploads over the size limit
+     */
+    private static class PlaintextInputStream extends FilterInputStream {
+
+        private final long limit;
+        private final Mac mac;
+        private long count;
+
+        PlaintextInputStream(InputStream in, long limit, Mac mac) {
+            super(in);
+            this.limit = limit;
+            this.mac = mac;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                counted(1);
+                if (mac != null) {
+                    mac.update((byte) b);
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                counted(read);
+                if (mac != null) {
+                    mac.update(buffer, offset, read);
+                }
+            }
+            return read;
+        }
+
+        private void counted(int read) {
+            count += read;
+            if (count > limit) {
+                throw new IllegalArgumentException("File too large (max 15MB)");
+            }
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        Mac getMac() {
+            return mac;
+        }
     }
 }
\ No newline at end of file
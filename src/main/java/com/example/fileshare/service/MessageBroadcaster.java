@@ -0,0 +1,272 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.dto.MessageResponse;
+import com.example.fileshare.model.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-Sent Events fan-out for the message board.
+ * Every subscriber gets a bounded queue; a subscriber whose queue
+ * overflows is too slow and gets disconnected (it reconnects and
+ * catches up through the cursor API).
+ * Events are written by a dedicated sender pool, never the one serving
+ * downloads; a client whose socket blocks a send past the send timeout
+ * is evicted and its sender interrupted.
+ */
+@Service
+public class MessageBroadcaster implements AutoCloseable {
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor senders;
+    private final ObjectMapper objectMapper;
+    private final FileshareProperties.Messages settings;
+    private final long sendTimeoutNanos;
+    private final LongAdder slowDisconnects = new LongAdder();
+
+    public MessageBroadcaster(ObjectMapper objectMapper, FileshareProperties properties) {
+        this.objectMapper = objectMapper;
+        this.settings = properties.getMessages();
+        this.sendTimeoutNanos = settings.getSendTimeout().toNanos();
+
+        int threads = settings.getSenderThreads() > 0
+                ? settings.getSenderThreads()
+                : Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+        AtomicInteger counter = new AtomicInteger();
+        // A subscriber has at most one drain queued, so this queue never holds more than the subscribers
+        this.senders = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getMaxSubscribers())),
+                task -> {
+                    Thread thread = new Thread(task, "sse-sender-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.senders.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Register a new SSE client, or null when the node is at capacity
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= settings.getMaxSubscribers()) {
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(settings.getStreamTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, settings.getSubscriberBuffer());
+
+        emitter.onCompletion(subscriber::closed);
+        emitter.onTimeout(subscriber::closed);
+        emitter.onError(e -> subscriber.closed());
+        subscribers.add(subscriber);
+
+        // Lets the client know it is live, so it can fill any gap via the cursor API
+        subscriber.offer(SseEmitter.event().name("ready").data("").build());
+        return emitter;
+    }
+
+    public void publishMessage(Message message) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        MessageResponse response = MessageResponse.success(
+                message.getMessageId(),
+                message.getSequence(),
+                message.getContent(),
+                message.getSenderId(),
+                message.getTimestamp()
+        );
+
+        try {
+            broadcast(SseEmitter.event()
+                    .id(String.valueOf(message.getSequence()))
+                    .name("message")
+                    .data(objectMapper.writeValueAsString(response), MediaType.APPLICATION_JSON)
+                    .build());
+        } catch (JsonProcessingException e) {
+            // Nothing to send
+        }
+    }
+
+    public void publishDelete(String messageId) {
+        broadcast(SseEmitter.event().name("delete").data(messageId).build());
+    }
+
+    public void publishClear() {
+        broadcast(SseEmitter.event().name("clear").data("").build());
+    }
+
+    /**
+     * Keep idle connections open through proxies and detect dead clients
+     */
+    @Scheduled(fixedRate = 20000)
+    public void heartbeat() {
+        broadcast(SseEmitter.event().comment("ping").build());
+    }
+
+    /**
+     * Write deadline: evict clients stuck inside a send.
+     * Only flags and interrupts - the emitter is completed by its sender,
+     * so this thread never waits on a blocked socket.
+     */
+    @Scheduled(fixedRate = 1000)
+    public void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStalled(now)) {
+                slowDisconnects.increment();
+                subscriber.disconnect();
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Clients dropped for a full queue or a send past the deadline
+     */
+    public long getSlowDisconnects() {
+        return slowDisconnects.sum();
+    }
+
+    @Override
+    public void close() {
+        senders.shutdownNow();
+    }
+
+    // Event is serialized once and shared by all subscribers
+    private void broadcast(Set<DataWithMediaType> event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile long sendStarted;
+        private Thread sender; // guarded by this, so an interrupt never outlives the send
+
+        Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void offer(Set<DataWithMediaType> event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                slowDisconnects.increment();
+                disconnect();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        boolean isStalled(long now) {
+            long started = sendStarted;
+            return started != 0 && now - started > sendTimeoutNanos;
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Sender pool shut down - nothing is sending, safe to finish here
+                    draining.set(false);
+                    closed();
+                    complete();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> event;
+                while (!closed && (event = queue.poll()) != null) {
+                    setSender(Thread.currentThread());
+                    try {
+                        emitter.send(event);
+                    } finally {
+                        setSender(null);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                closed();
+            } finally {
+                draining.set(false);
+                // Do not carry an eviction interrupt into the next drain
+                Thread.interrupted();
+            }
+
+            if (closed) {
+                complete();
+            } else if (!queue.isEmpty()) {
+                // An event may have arrived after the last poll
+                scheduleDrain();
+            }
+        }
+
+        /**
+         * Stop sending; the emitter is completed on a sender thread
+         */
+        void disconnect() {
+            closed();
+            synchronized (this) {
+                if (sender != null) {
+                    sender.interrupt();
+                }
+            }
+            scheduleDrain();
+        }
+
+        private synchronized void setSender(Thread thread) {
+            sender = thread;
+            sendStarted = thread == null ? 0 : System.nanoTime();
+        }
+
+        void closed() {
+            closed = true;
+            if (subscribers.remove(this)) {
+                queue.clear();
+            }
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                try {
+                    emitter.complete();
+                } catch (RuntimeException e) {
+                    // Connection already gone
+                }
+            }
+        }
+    }
+}
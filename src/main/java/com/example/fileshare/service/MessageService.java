@@ -1,87 +1,147 @@
 package com.example.fileshare.service;
 
 import com.example.fileshare.model.Message;
-import org.springframework.scheduling.annotation.Scheduled;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.security.SecureRandom;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Message board kept in a CompactMessageStore; Message objects exist only
+ * while a request or event is using them. Expired messages are swept in
+ * sequence order, with one wheel entry per second of deadlines rather
+ * than one per message.
+ */
 @Service
+@RequiredArgsConstructor
 public class MessageService {
 
-    private final Map<String, Message> messageStore = new ConcurrentHashMap<>();
+    private final CompactMessageStore messageStore = new CompactMessageStore();
+    // Inserts happen in sequence order under appendLock, so readers only ever see a gap-free prefix
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final ExpiryScheduler expiryScheduler;
+    private final MessageBroadcaster messageBroadcaster;
     private static final long MESSAGE_LIFETIME_MINUTES = 60;
-    private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
     private static final int MESSAGE_ID_LENGTH = 8;
-    private final SecureRandom secureRandom = new SecureRandom();
+    private static final int MAX_MESSAGE_ID_LENGTH = 10;
+    private final IdAllocator idAllocator = new IdAllocator(MESSAGE_ID_LENGTH, MAX_MESSAGE_ID_LENGTH);
+    private long lastSweepSecond; // guarded by appendLock
 
-    private String generateMessageId() {
-        StringBuilder id = new StringBuilder(MESSAGE_ID_LENGTH);
-        for (int i = 0; i < MESSAGE_ID_LENGTH; i++) {
-            int index = secureRandom.nextInt(CHARACTERS.length());
-            id.append(CHARACTERS.charAt(index));
+    @Timed("fileshare.messages.operation")
+    public Message sendMessage(String content, String senderId) {
+        Message message;
+
+        // Assign sequence, store and publish atomically: readers only ever see a
+        // gap-free prefix, and subscriber queues receive events in sequence order
+        appendLock.lock();
+        try {
+            Instant now = Instant.now();
+            Instant expiresAt = now.plus(MESSAGE_LIFETIME_MINUTES, ChronoUnit.MINUTES);
+            long sequence = lastSequence.incrementAndGet();
+
+            String messageId = idAllocator.allocate(messageStore::size, id -> messageStore.add(
+                    id, sequence, content, senderId, now.toEpochMilli(), expiresAt.toEpochMilli()));
+            scheduleSweep(expiresAt);
+
+            message = Message.builder()
+                    .messageId(messageId)
+                    .sequence(sequence)
+                    .content(content)
+                    .senderId(senderId)
+                    .timestamp(now)
+                    .expiresAt(expiresAt)
+                    .build();
+            messageBroadcaster.publishMessage(message); // only enqueues, sends run on the sender pool
+        } finally {
+            appendLock.unlock();
         }
-        String messageId = id.toString();
-        if (messageStore.containsKey(messageId)) {
-            return generateMessageId();
+
+        return message;
+    }
+
+    /**
+     * One sweep per second of deadlines covers every message expiring in it
+     */
+    private void scheduleSweep(Instant expiresAt) {
+        long second = expiresAt.getEpochSecond();
+        if (second != lastSweepSecond) {
+            lastSweepSecond = second;
+            expiryScheduler.schedule(expiresAt, this::expireMessages);
         }
-        return messageId;
     }
 
-    public Message sendMessage(String content, String senderId) {
-        String messageId = generateMessageId();
-        Instant now = Instant.now();
-
-        Message message = Message.builder()
-                .messageId(messageId)
-                .content(content)
-                .senderId(senderId)
-                .timestamp(now)
-                .expiresAt(now.plus(MESSAGE_LIFETIME_MINUTES, ChronoUnit.MINUTES))
-                .build();
-
-        messageStore.put(messageId, message);
-        return message;
+    private void expireMessages() {
+        messageStore.expire(System.currentTimeMillis());
+    }
+
+    /**
+     * Put back a message loaded from a snapshot, keeping its ID and sequence
+     */
+    public boolean restoreMessage(Message message) {
+        if (message.isExpired()) {
+            return false;
+        }
+
+        appendLock.lock();
+        try {
+            if (!messageStore.add(message.getMessageId(), message.getSequence(), message.getContent(),
+                    message.getSenderId(), message.getTimestamp().toEpochMilli(),
+                    message.getExpiresAt().toEpochMilli())) {
+                return false;
+            }
+            lastSequence.accumulateAndGet(message.getSequence(), Math::max);
+            scheduleSweep(message.getExpiresAt());
+            return true;
+        } finally {
+            appendLock.unlock();
+        }
     }
 
+    @Timed("fileshare.messages.operation")
     public List<Message> getAllMessages() {
-        return messageStore.values().stream()
-                .filter(msg -> !msg.isExpired())
-                .sorted((m1, m2) -> m1.getTimestamp().compareTo(m2.getTimestamp()))
-                .collect(Collectors.toList());
+        return messageStore.after(0, Integer.MAX_VALUE, System.currentTimeMillis());
     }
 
-    public Message getMessage(String messageId) {
-        Message message = messageStore.get(messageId);
-        if (message == null || message.isExpired()) {
-            return null;
-        }
-        return message;
+    /**
+     * Messages with a sequence greater than the cursor, oldest first
+     */
+    @Timed("fileshare.messages.operation")
+    public List<Message> getMessagesAfter(long cursor, int limit) {
+        return messageStore.after(cursor, limit, System.currentTimeMillis());
     }
 
-    public void deleteMessage(String messageId) {
-        messageStore.remove(messageId);
+    /**
+     * Highest sequence handed out so far
+     */
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    public Message getMessage(String messageId) {
+        return messageStore.get(messageId, System.currentTimeMillis());
     }
 
-    @Scheduled(fixedDelay = 300000)
-    public void cleanupExpiredMessages() {
-        messageStore.entrySet().removeIf(entry -> entry.getValue().isExpired());
+    public void deleteMessage(String messageId) {
+        if (messageStore.remove(messageId)) {
+            messageBroadcaster.publishDelete(messageId);
+        }
     }
 
+    /**
+     * Expired messages leave the store within one wheel tick, so its size is the live count
+     */
     public int getMessageCount() {
-        return (int) messageStore.values().stream()
-                .filter(msg -> !msg.isExpired())
-                .count();
+        return messageStore.size();
     }
 
     public void clearAll() {
         messageStore.clear();
+        messageBroadcaster.publishClear();
     }
-}
\ No newline at end of file
+}
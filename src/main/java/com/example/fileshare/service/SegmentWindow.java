@@ -0,0 +1,103 @@
+package com.example.fileshare.service;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the segments of one file on the crypto workers while handing their
+ * results to the sink strictly in submission order, on the calling thread.
+ * At most capacity segments are in flight; submit blocks on the oldest one
+ * when the window is full. Not thread-safe - one window per file stream.
+ */
+public final class SegmentWindow<T> {
+
+    /**
+     * Receives results in order, on the thread that submits
+     */
+    @FunctionalInterface
+    public interface Sink<T> {
+        void accept(T result) throws Exception;
+    }
+
+    private final Executor executor;
+    private final int capacity;
+    private final Sink<T> sink;
+    private final ArrayDeque<FutureTask<T>> inFlight;
+
+    SegmentWindow(Executor executor, int capacity, Sink<T> sink) {
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.sink = sink;
+        this.inFlight = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * Queue the next segment. Inline segments (or every segment when there
+     * are no workers) run right here once everything before them is out.
+     */
+    public void submit(Callable<T> task, boolean inline) throws Exception {
+        if (inline || executor == null) {
+            finish();
+            sink.accept(task.call());
+            return;
+        }
+
+        while (inFlight.size() >= capacity) {
+            drainOldest();
+        }
+        FutureTask<T> future = new FutureTask<>(task);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            // Workers shut down - do the work here instead
+            future.run();
+        }
+        inFlight.add(future);
+    }
+
+    /**
+     * Wait for every queued segment and pass it on
+     */
+    public void finish() throws Exception {
+        while (!inFlight.isEmpty()) {
+            drainOldest();
+        }
+    }
+
+    /**
+     * Drop queued segments after a failure. Segments already running are
+     * waited for, so the caller can wipe keys and buffers they still use.
+     */
+    public void cancel() {
+        FutureTask<T> future;
+        while ((future = inFlight.poll()) != null) {
+            if (!future.cancel(false)) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    // Already failing - the first error is the one reported
+                }
+            }
+        }
+    }
+
+    private void drainOldest() throws Exception {
+        T result;
+        try {
+            result = inFlight.peek().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        inFlight.poll();
+        sink.accept(result);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker pool that seals and opens file segments in parallel.
+ * Kept apart from the request and batch pools: callers block on segment
+ * results, so the workers must never wait on anything themselves.
+ * NO LOGGING - NO TRACES
+ */
+@Service
+public class SegmentWorkers implements AutoCloseable {
+
+    private final ExecutorService pool;
+    private final int threads;
+    private final int window;
+
+    public SegmentWorkers(FileshareProperties properties) {
+        FileshareProperties.Crypto crypto = properties.getCrypto();
+        this.threads = crypto.getThreads() > 0
+                ? crypto.getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.window = crypto.getWindow() > 0 ? crypto.getWindow() : threads * 2;
+
+        AtomicInteger counter = new AtomicInteger();
+        // One worker means no parallelism to gain - segments stay on the caller
+        this.pool = threads <= 1 ? null : Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "segment-crypto-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Window for one file stream; results reach the sink in order
+     */
+    public <T> SegmentWindow<T> window(SegmentWindow.Sink<T> sink) {
+        return new SegmentWindow<>(pool, window, sink);
+    }
+
+    public int getThreads() {
+        return pool == null ? 1 : threads;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.model.EncryptedFile;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * File index split into independent shards by ID hash.
+ * Every shard is its own map, so resizes, scans and snapshots proceed
+ * shard by shard instead of across one table. Removal is by identity
+ * only - a short ID reused by a newer file is never removed by mistake.
+ */
+public class ShardedFileStore {
+
+    private final Shard[] shards;
+    private final int shardBits;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ShardedFileStore(int shardCount) {
+        int count = 2;
+        while (count < shardCount) {
+            count <<= 1;
+        }
+        this.shardBits = Integer.numberOfTrailingZeros(count);
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    private Map<String, EncryptedFile> shardFor(String fileId) {
+        // High bits pick the shard; the maps inside index by the low bits
+        return shards[(fileId.hashCode() * 0x9E3779B9) >>> (32 - shardBits)];
+    }
+
+    public EncryptedFile get(String fileId) {
+        return shardFor(fileId).get(fileId);
+    }
+
+    public boolean putIfAbsent(String fileId, EncryptedFile file) {
+        if (shardFor(fileId).putIfAbsent(fileId, file) != null) {
+            return false;
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Remove only if the ID still maps to this very file
+     */
+    public boolean remove(String fileId, EncryptedFile file) {
+        if (!shardFor(fileId).remove(fileId, file)) {
+            return false;
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Read-only view of one shard
+     */
+    public Map<String, EncryptedFile> shard(int index) {
+        return Collections.unmodifiableMap(shards[index]);
+    }
+
+    public void forEach(BiConsumer<String, EncryptedFile> action) {
+        for (Shard shard : shards) {
+            shard.forEach(action);
+        }
+    }
+
+    private static final class Shard extends ConcurrentHashMap<String, EncryptedFile> {
+    }
+}
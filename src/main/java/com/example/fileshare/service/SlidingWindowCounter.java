@@ -0,0 +1,68 @@
+package com.example.fileshare.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event counts per second over the last few minutes.
+ * A fixed ring holds one bucket per second; a bucket is recycled when its
+ * slot comes round again, so recording and reading never depend on how many
+ * events there were. Counts are approximate at bucket boundaries.
+ */
+public class SlidingWindowCounter {
+
+    private final int seconds;
+    private final AtomicLongArray stamps; // Second each bucket is counting
+    private final LongAdder[] counts;
+
+    public SlidingWindowCounter(int seconds) {
+        this.seconds = seconds;
+        this.stamps = new AtomicLongArray(seconds);
+        this.counts = new LongAdder[seconds];
+        for (int i = 0; i < seconds; i++) {
+            stamps.set(i, -1);
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long amount) {
+        record(amount, System.currentTimeMillis());
+    }
+
+    void record(long amount, long nowMillis) {
+        long second = nowMillis / 1000;
+        int slot = (int) (second % seconds);
+        long stamp = stamps.get(slot);
+        if (stamp != second && stamps.compareAndSet(slot, stamp, second)) {
+            counts[slot].reset();
+        }
+        counts[slot].add(amount);
+    }
+
+    /**
+     * Total over the last window seconds, the current one included
+     */
+    public long sum(int window) {
+        return sum(window, System.currentTimeMillis());
+    }
+
+    long sum(int window, long nowMillis) {
+        long now = nowMillis / 1000;
+        long total = 0;
+        for (int back = 0; back < Math.min(window, seconds); back++) {
+            long second = now - back;
+            int slot = (int) (second % seconds);
+            if (stamps.get(slot) == second) {
+                total += counts[slot].sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Average per second over the last window seconds
+     */
+    public double ratePerSecond(int window) {
+        return (double) sum(window) / Math.min(window, seconds);
+    }
+}
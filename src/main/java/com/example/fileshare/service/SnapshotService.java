@@ -0,0 +1,914 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.Codec;
+import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.model.FileMetadata;
+import com.example.fileshare.model.FileState;
+import com.example.fileshare.model.Message;
+import com.example.fileshare.storage.CiphertextBlob;
+import com.example.fileshare.storage.CiphertextStore;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in encrypted snapshot of pending files and messages for warm restarts.
+ * Written periodically and on shutdown as one part per file-index shard
+ * plus one for messages, each sealed with segmented AES-GCM under the
+ * operator key. Parts are written and loaded in parallel; entries that
+ * expired while the node was down are skipped on load, not swept later.
+ * File content stays encrypted under its own key inside the snapshot.
+ * A sealed manifest lists every part with its digest, and each part is
+ * bound to the snapshot id and its index, so a deleted, added or swapped
+ * part fails the load instead of restoring partial state.
+ * Limit: state changes after the last snapshot are lost on a crash - a
+ * file downloaded since then comes back and can be downloaded again.
+ * One-time download holds across graceful restarts only (shutdown writes
+ * a final snapshot); keep the interval short if crashes are a concern.
+ */
+@Service
+public class SnapshotService implements SmartLifecycle {
+
+    private static final int MAGIC = 0x46534E50; // "FSNP"
+    private static final byte FORMAT_VERSION = 2;
+    private static final byte KIND_FILES = 1;
+    private static final byte KIND_MESSAGES = 2;
+    private static final byte KIND_MANIFEST = 3;
+    private static final int KEY_SIZE = 32;
+    private static final int ID_SIZE = 16;
+    private static final int MANIFEST_INDEX = -1;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String PENDING_SUFFIX = ".tmp";
+    private static final String MESSAGES_PART = "messages.snap";
+    private static final String MANIFEST_PART = "manifest.snap";
+
+    // Start before the web server opens its port and stop after it has closed it
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final InMemoryStorageService storageService;
+    private final MessageService messageService;
+    private final EncryptionService encryptionService;
+    private final CiphertextStore ciphertextStore;
+    private final FileshareProperties.Snapshot settings;
+    private final byte[] snapshotKey;
+    private final SecureRandom random = new SecureRandom();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile long lastSnapshotBytes;
+    private volatile long restoredFiles;
+    private final LongAdder refusedFiles = new LongAdder();
+    private volatile long restoredMessages;
+    private volatile long restoreMillis;
+    private volatile boolean running;
+
+    public SnapshotService(InMemoryStorageService storageService, MessageService messageService,
+                           EncryptionService encryptionService, CiphertextStore ciphertextStore,
+                           FileshareProperties properties) {
+        this.storageService = storageService;
+        this.messageService = messageService;
+        this.encryptionService = encryptionService;
+        this.ciphertextStore = ciphertextStore;
+        this.settings = properties.getSnapshot();
+        this.snapshotKey = settings.isEnabled() ? decodeKey(settings.getKey()) : null;
+    }
+
+    private static byte[] decodeKey(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            throw new IllegalStateException("fileshare.snapshot.key must be set when snapshots are enabled");
+        }
+        byte[] key = Base64.getDecoder().decode(encoded.trim());
+        if (key.length != KEY_SIZE) {
+            throw new IllegalStateException("fileshare.snapshot.key must be 32 bytes, Base64 encoded");
+        }
+        return key;
+    }
+
+    /**
+     * Load the newest snapshot before the web server starts taking requests.
+     * Runs once all beans exist, so loader threads can call through proxies.
+     */
+    @Override
+    public void start() {
+        try {
+            restore();
+        } catch (IOException e) {
+            throw new IllegalStateException("Snapshot could not be loaded", e);
+        }
+        running = true;
+    }
+
+    /**
+     * Final snapshot once the web server has stopped taking requests
+     */
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            snapshot();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Load the newest complete snapshot, if any, all parts in parallel
+     */
+    public void restore() throws IOException {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        Path snapshot = latestSnapshot(settings.getDirectory());
+        if (snapshot == null) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        Manifest manifest = readManifest(snapshot.resolve(MANIFEST_PART));
+        Set<String> present;
+        try (Stream<Path> listing = Files.list(snapshot)) {
+            present = listing.map(path -> path.getFileName().toString()).collect(Collectors.toSet());
+        }
+        Set<String> expected = new HashSet<>();
+        expected.add(MANIFEST_PART);
+        manifest.parts().forEach(part -> expected.add(part.name()));
+        if (!present.equals(expected)) {
+            throw new IOException("Snapshot parts do not match its manifest: " + snapshot.getFileName());
+        }
+
+        LongAdder files = new LongAdder();
+        LongAdder messages = new LongAdder();
+        runAll(manifest.parts().stream()
+                .map(part -> (PartTask) () -> {
+                    loadPart(snapshot.resolve(part.name()), manifest.snapshotId(), part, files, messages);
+                    return 0L;
+                })
+                .toList());
+
+        restoredFiles = files.sum();
+        restoredMessages = messages.sum();
+        restoreMillis = (System.nanoTime() - started) / 1_000_000;
+    }
+
+    /**
+     * Periodic snapshot
+     */
+    @Scheduled(initialDelayString = "${fileshare.snapshot.interval:PT5M}",
+            fixedDelayString = "${fileshare.snapshot.interval:PT5M}")
+    @Timed("fileshare.snapshot.write")
+    public void scheduledSnapshot() throws IOException {
+        snapshot();
+    }
+
+    /**
+     * Write a complete snapshot next to the current one, then replace it.
+     * A crash mid-write leaves the previous snapshot in place.
+     */
+    public void snapshot() throws IOException {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Path directory = Files.createDirectories(settings.getDirectory(),
+                    ownerOnly(settings.getDirectory(), "rwx------"));
+            String name = SNAPSHOT_PREFIX + System.currentTimeMillis();
+            Path pending = Files.createDirectory(directory.resolve(name + PENDING_SUFFIX),
+                    ownerOnly(directory, "rwx------"));
+
+            byte[] snapshotId = new byte[ID_SIZE];
+            random.nextBytes(snapshotId);
+            int shards = storageService.getShardCount();
+            List<String> names = new ArrayList<>(shards + 1);
+            for (int shard = 0; shard < shards; shard++) {
+                names.add(String.format("files-%04d.snap", shard));
+            }
+            names.add(MESSAGES_PART);
+
+            // Each task fills in its own slot; the manifest is written once all are done
+            byte[][] digests = new byte[names.size()][];
+            List<PartTask> parts = new ArrayList<>();
+            for (int index = 0; index < names.size(); index++) {
+                int partIndex = index;
+                Path part = pending.resolve(names.get(index));
+                PartWriter writer = partIndex < shards
+                        ? out -> writeFiles(partIndex, out)
+                        : this::writeMessages;
+                byte kind = partIndex < shards ? KIND_FILES : KIND_MESSAGES;
+                parts.add(() -> {
+                    SealedOutputStream sealed = writePart(part, snapshotId, partIndex, kind, writer);
+                    digests[partIndex] = sealed.getDigest();
+                    return sealed.getWrittenBytes();
+                });
+            }
+
+            long bytes;
+            try {
+                bytes = runAll(parts);
+                bytes += writePart(pending.resolve(MANIFEST_PART), snapshotId, MANIFEST_INDEX, KIND_MANIFEST,
+                        out -> writeManifest(out, names, digests)).getWrittenBytes();
+            } catch (IOException | RuntimeException e) {
+                deleteSnapshot(pending);
+                throw e;
+            }
+
+            Path committed = Files.move(pending, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            lastSnapshotBytes = bytes;
+            deleteOlderSnapshots(directory, committed);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartTask {
+        long run() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface PartWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Run all parts on a pool sized to the cores
+     *
+     * @return sum of the task results
+     */
+    private static long runAll(List<PartTask> tasks) throws IOException {
+        try (ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            List<Future<Long>> results = new ArrayList<>(tasks.size());
+            for (PartTask task : tasks) {
+                results.add(pool.submit(task::run));
+            }
+
+            long total = 0;
+            for (Future<Long> result : results) {
+                total += result.get();
+            }
+            return total;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IllegalStateException("Snapshot failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Snapshot interrupted", e);
+        }
+    }
+
+    /**
+     * @return the closed stream, for its size and digest
+     */
+    private SealedOutputStream writePart(Path part, byte[] snapshotId, int partIndex, byte kind,
+                                         PartWriter writer) throws IOException {
+        SealedOutputStream sealed = new SealedOutputStream(part, snapshotId, partIndex);
+        try (DataOutputStream out = new DataOutputStream(sealed)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(kind);
+            writer.write(out);
+            out.writeBoolean(false); // end of records
+        }
+        return sealed;
+    }
+
+    /**
+     * Part count, then every part's name and the SHA-256 of its file
+     */
+    private static void writeManifest(DataOutputStream out, List<String> names, byte[][] digests) throws IOException {
+        out.writeInt(names.size());
+        for (int index = 0; index < names.size(); index++) {
+            out.writeBoolean(true);
+            writeString(out, names.get(index));
+            writeBytes(out, digests[index]);
+        }
+    }
+
+    private void writeFiles(int shard, DataOutputStream out) throws IOException {
+        try {
+            storageService.forEachFile(shard, (fileId, file) -> {
+                try {
+                    writeFile(out, fileId, file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Only files nobody has claimed are worth keeping. Ciphertext is wiped
+     * only after a file leaves AVAILABLE, so a file still AVAILABLE after
+     * the copy was copied intact.
+     */
+    private void writeFile(DataOutputStream out, String fileId, EncryptedFile file) throws IOException {
+        if (file.getState() != FileState.AVAILABLE || file.isExpired()) {
+            return;
+        }
+        byte[] key = file.getEncryptionKey().clone();
+        byte[] iv = file.getIv().clone();
+        try {
+            List<byte[]> segments = new ArrayList<>();
+            try {
+                CiphertextBlob ciphertext = file.getCiphertext();
+                for (int index = 0, count = ciphertext.segmentCount(); index < count; index++) {
+                    segments.add(ciphertext.readSegment(index));
+                }
+            } catch (RuntimeException e) {
+                return; // Released while we were copying
+            }
+
+            FileMetadata metadata = file.getMetadata();
+            if (metadata.state() != FileState.AVAILABLE) {
+                return;
+            }
+
+            out.writeBoolean(true);
+            writeString(out, fileId);
+            writeString(out, metadata.originalFilename());
+            out.writeLong(metadata.size());
+            out.writeLong(metadata.createdAt().toEpochMilli());
+            out.writeLong(metadata.expiresAt().toEpochMilli());
+            out.writeBoolean(metadata.keyReleased());
+            writeString(out, file.getCodec().name());
+            out.writeInt(file.getSegmentSize());
+            writeBytes(out, key);
+            writeBytes(out, iv);
+            out.writeInt(segments.size());
+            for (byte[] segment : segments) {
+                writeBytes(out, segment);
+            }
+        } finally {
+            encryptionService.zeroize(key);
+            encryptionService.zeroize(iv);
+        }
+    }
+
+    private void writeMessages(DataOutputStream out) throws IOException {
+        for (Message message : messageService.getAllMessages()) {
+            out.writeBoolean(true);
+            out.writeLong(message.getSequence());
+            writeString(out, message.getMessageId());
+            writeString(out, message.getContent());
+            writeString(out, message.getSenderId());
+            out.writeLong(message.getTimestamp().toEpochMilli());
+            out.writeLong(message.getExpiresAt().toEpochMilli());
+        }
+    }
+
+    private record PartEntry(String name, int index, byte[] digest) {
+    }
+
+    private record Manifest(byte[] snapshotId, List<PartEntry> parts) {
+    }
+
+    private Manifest readManifest(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            throw new IOException("Snapshot has no manifest: " + path.getParent().getFileName());
+        }
+        SealedInputStream sealed = new SealedInputStream(path, null, MANIFEST_INDEX, null);
+        try (DataInputStream in = new DataInputStream(sealed)) {
+            readHeader(in, path, KIND_MANIFEST);
+            int count = in.readInt();
+            List<PartEntry> parts = new ArrayList<>(count);
+            while (in.readBoolean()) {
+                parts.add(new PartEntry(readString(in), parts.size(), readBytes(in)));
+            }
+            readEnd(in, path);
+            if (parts.size() != count) {
+                throw new IOException("Corrupt snapshot manifest");
+            }
+            return new Manifest(sealed.getSnapshotId(), parts);
+        }
+    }
+
+    private void loadPart(Path path, byte[] snapshotId, PartEntry part,
+                          LongAdder files, LongAdder messages) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new SealedInputStream(path, snapshotId, part.index(), part.digest()))) {
+            if (in.readByte() != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version: " + path.getFileName());
+            }
+            byte kind = in.readByte();
+            switch (kind) {
+                case KIND_FILES -> loadFiles(in, files);
+                case KIND_MESSAGES -> loadMessages(in, messages);
+                default -> throw new IOException("Unknown snapshot part: " + path.getFileName());
+            }
+            // Reads on to the final segment, so its digest and position are checked
+            readEnd(in, path);
+        }
+    }
+
+    private static void readHeader(DataInputStream in, Path path, byte kind) throws IOException {
+        if (in.readByte() != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version: " + path.getFileName());
+        }
+        if (in.readByte() != kind) {
+            throw new IOException("Unexpected snapshot part: " + path.getFileName());
+        }
+    }
+
+    private static void readEnd(DataInputStream in, Path path) throws IOException {
+        if (in.read() != -1) {
+            throw new IOException("Trailing data in snapshot part: " + path.getFileName());
+        }
+    }
+
+    private void loadFiles(DataInputStream in, LongAdder restored) throws IOException {
+        long now = System.currentTimeMillis();
+        while (in.readBoolean()) {
+            String fileId = readString(in);
+            String filename = readString(in);
+            long size = in.readLong();
+            long createdAt = in.readLong();
+            long expiresAt = in.readLong();
+            boolean keyReleased = in.readBoolean();
+            Codec codec = Codec.valueOf(readString(in));
+            int segmentSize = in.readInt();
+            byte[] key = readBytes(in);
+            byte[] iv = readBytes(in);
+            int segmentCount = in.readInt();
+
+            if (expiresAt <= now) {
+                // Expired while we were down - step over it without storing anything
+                for (int index = 0; index < segmentCount; index++) {
+                    in.skipNBytes(in.readInt());
+                }
+                encryptionService.zeroize(key);
+                continue;
+            }
+
+            CiphertextBlob ciphertext = ciphertextStore.newBlob();
+            try {
+                for (int index = 0; index < segmentCount; index++) {
+                    ciphertext.append(readBytes(in));
+                }
+                ciphertext.seal();
+            } catch (IOException | RuntimeException e) {
+                ciphertext.release();
+                encryptionService.zeroize(key);
+                throw e;
+            }
+
+            EncryptedFile file = EncryptedFile.builder()
+                    .originalFilename(filename)
+                    .ciphertext(ciphertext)
+                    .segmentSize(segmentSize)
+                    .codec(codec)
+                    .encryptionKey(key)
+                    .iv(iv)
+                    .size(size)
+                    .createdAt(Instant.ofEpochMilli(createdAt))
+                    .expiresAt(Instant.ofEpochMilli(expiresAt))
+                    .build();
+            if (keyReleased) {
+                file.markKeyReleased();
+            }
+
+            if (storageService.restoreFile(fileId, file)) {
+                restored.increment();
+            } else {
+                // Over the budget or ID taken - dropped, and counted so it is not silent
+                refusedFiles.increment();
+                ciphertext.release();
+                file.clearSensitiveData();
+            }
+        }
+    }
+
+    private void loadMessages(DataInputStream in, LongAdder restored) throws IOException {
+        while (in.readBoolean()) {
+            Message message = Message.builder()
+                    .sequence(in.readLong())
+                    .messageId(readString(in))
+                    .content(readString(in))
+                    .senderId(readString(in))
+                    .timestamp(Instant.ofEpochMilli(in.readLong()))
+                    .expiresAt(Instant.ofEpochMilli(in.readLong()))
+                    .build();
+            if (messageService.restoreMessage(message)) {
+                restored.increment();
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+
+    private static Path latestSnapshot(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing
+                    .filter(path -> isSnapshot(path) && !path.getFileName().toString().endsWith(PENDING_SUFFIX))
+                    .max((a, b) -> Long.compare(snapshotTime(a), snapshotTime(b)))
+                    .orElse(null);
+        }
+    }
+
+    /**
+     * Owner-only access where the file system has POSIX permissions
+     */
+    private static FileAttribute<?>[] ownerOnly(Path path, String permissions) {
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[0];
+        }
+        return new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(permissions))};
+    }
+
+    private static boolean isSnapshot(Path path) {
+        return path.getFileName().toString().startsWith(SNAPSHOT_PREFIX);
+    }
+
+    private static long snapshotTime(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Drop superseded snapshots and leftovers of interrupted writes
+     */
+    private static void deleteOlderSnapshots(Path directory, Path keep) throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            for (Path path : listing.filter(SnapshotService::isSnapshot).toList()) {
+                if (!path.equals(keep)) {
+                    deleteSnapshot(path);
+                }
+            }
+        }
+    }
+
+    private static void deleteSnapshot(Path snapshot) throws IOException {
+        try (Stream<Path> listing = Files.list(snapshot)) {
+            for (Path part : listing.toList()) {
+                Files.deleteIfExists(part);
+            }
+        }
+        Files.deleteIfExists(snapshot);
+    }
+
+    /**
+     * Size on disk of the last snapshot written
+     */
+    public long getLastSnapshotBytes() {
+        return lastSnapshotBytes;
+    }
+
+    public long getRestoredFiles() {
+        return restoredFiles;
+    }
+
+    /**
+     * Snapshot files the startup load had to drop, mostly for lack of budget
+     */
+    public long getRefusedFiles() {
+        return refusedFiles.sum();
+    }
+
+    public long getRestoredMessages() {
+        return restoredMessages;
+    }
+
+    /**
+     * Wall-clock time the startup load took
+     */
+    public long getRestoreMillis() {
+        return restoreMillis;
+    }
+
+    /**
+     * Snapshot id and part index, authenticated with every segment of a part
+     */
+    private static byte[] partContext(byte[] snapshotId, int partIndex) {
+        return ByteBuffer.allocate(ID_SIZE + Integer.BYTES).put(snapshotId).putInt(partIndex).array();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Cuts the stream into segments sealed under the snapshot key and
+     * appends them to the part file: [last flag][length][ciphertext] each,
+     * after a [magic][iv][snapshot id] header.
+     * The last segment is sealed on close, so truncation is detected.
+     */
+    private final class SealedOutputStream extends OutputStream {
+
+        private final FileChannel channel;
+        private final byte[] iv = encryptionService.generateIV();
+        private final byte[] context;
+        private final MessageDigest digest = sha256();
+        private final byte[] buffer = new byte[EncryptionService.SEGMENT_SIZE];
+        private final ByteBuffer frameHeader = ByteBuffer.allocate(1 + Integer.BYTES);
+        private int position;
+        private long index;
+        private long written;
+        private byte[] fileDigest;
+        private boolean closed;
+
+        SealedOutputStream(Path part, byte[] snapshotId, int partIndex) throws IOException {
+            this.context = partContext(snapshotId, partIndex);
+            this.channel = FileChannel.open(part,
+                    Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                    ownerOnly(part, "rw-------"));
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + iv.length + ID_SIZE)
+                    .putInt(MAGIC).put(iv).put(snapshotId).flip();
+            digest.update(header.duplicate());
+            while (header.hasRemaining()) {
+                written += channel.write(header);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (position == buffer.length) {
+                seal(false);
+            }
+            buffer[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (position == buffer.length) {
+                    seal(false);
+                }
+                int chunk = Math.min(length, buffer.length - position);
+                System.arraycopy(data, offset, buffer, position, chunk);
+                position += chunk;
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        private void seal(boolean last) throws IOException {
+            byte[] sealed;
+            try {
+                sealed = encryptionService.encryptSegment(buffer, 0, position, snapshotKey, iv, index++, last, context);
+            } catch (Exception e) {
+                throw new IOException("Snapshot encryption failed", e);
+            }
+            frameHeader.clear();
+            frameHeader.put((byte) (last ? 1 : 0)).putInt(sealed.length).flip();
+            digest.update(frameHeader.duplicate());
+            digest.update(sealed);
+            ByteBuffer[] frame = {frameHeader, ByteBuffer.wrap(sealed)};
+            while (frame[1].hasRemaining()) {
+                written += channel.write(frame);
+            }
+            position = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                seal(true);
+                channel.force(true);
+                fileDigest = digest.digest();
+            } finally {
+                encryptionService.zeroize(buffer);
+                channel.close();
+            }
+        }
+
+        long getWrittenBytes() {
+            return written;
+        }
+
+        /**
+         * SHA-256 of the whole part file, once closed
+         */
+        byte[] getDigest() {
+            return fileDigest;
+        }
+    }
+
+    /**
+     * Reads a part written by SealedOutputStream, authenticating every
+     * segment; fails if segments were altered, reordered or cut off, if
+     * the part belongs to another snapshot or index, or if the file does
+     * not match the manifest digest
+     */
+    private final class SealedInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final Path part;
+        private final byte[] iv = new byte[12];
+        private final byte[] snapshotId = new byte[ID_SIZE];
+        private final byte[] context;
+        private final byte[] expectedDigest;
+        private final MessageDigest digest = sha256();
+        private final byte[] plain = new byte[EncryptionService.SEGMENT_SIZE];
+        private final ByteBuffer frameHeader = ByteBuffer.allocate(1 + Integer.BYTES);
+        private byte[] sealed = new byte[0];
+        private int position;
+        private int limit;
+        private long index;
+        private boolean finished;
+
+        /**
+         * @param expectedId     snapshot the part must belong to, or null to take it from the header
+         * @param expectedDigest SHA-256 the file must have, or null
+         */
+        SealedInputStream(Path part, byte[] expectedId, int partIndex, byte[] expectedDigest) throws IOException {
+            this.part = part;
+            this.expectedDigest = expectedDigest;
+            this.channel = FileChannel.open(part, StandardOpenOption.READ);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + iv.length + ID_SIZE);
+                readFully(header);
+                header.flip();
+                digest.update(header.duplicate());
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("Not a snapshot part: " + part.getFileName());
+                }
+                header.get(iv).get(snapshotId);
+                if (expectedId != null && !MessageDigest.isEqual(snapshotId, expectedId)) {
+                    throw new IOException("Snapshot part belongs to another snapshot: " + part.getFileName());
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            this.context = partContext(snapshotId, partIndex);
+        }
+
+        byte[] getSnapshotId() {
+            return snapshotId;
+        }
+
+        private void readFully(ByteBuffer target) throws IOException {
+            while (target.hasRemaining()) {
+                if (channel.read(target) < 0) {
+                    throw new EOFException("Truncated snapshot");
+                }
+            }
+        }
+
+        private boolean fill() throws IOException {
+            if (finished) {
+                return false;
+            }
+            frameHeader.clear();
+            readFully(frameHeader);
+            frameHeader.flip();
+            boolean last = frameHeader.get() == 1;
+            int length = frameHeader.getInt();
+            if (length < EncryptionService.SEGMENT_OVERHEAD
+                    || length > EncryptionService.SEGMENT_SIZE + EncryptionService.SEGMENT_OVERHEAD) {
+                throw new IOException("Corrupt snapshot");
+            }
+
+            if (sealed.length != length) {
+                sealed = new byte[length];
+            }
+            readFully(ByteBuffer.wrap(sealed));
+            digest.update(frameHeader.rewind());
+            digest.update(sealed);
+            try {
+                limit = encryptionService.decryptSegment(sealed, plain, snapshotKey, iv, index++, last, context);
+            } catch (Exception e) {
+                throw new IOException("Snapshot failed authentication - wrong key, damaged or misplaced part: "
+                        + part.getFileName(), e);
+            }
+            position = 0;
+            finished = last;
+            if (last) {
+                verifyEnd();
+            }
+            return true;
+        }
+
+        private void verifyEnd() throws IOException {
+            if (channel.position() != channel.size()) {
+                throw new IOException("Trailing data in snapshot part: " + part.getFileName());
+            }
+            if (expectedDigest != null && !MessageDigest.isEqual(digest.digest(), expectedDigest)) {
+                throw new IOException("Snapshot part does not match its manifest: " + part.getFileName());
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (position == limit) {
+                if (!fill()) {
+                    return -1;
+                }
+            }
+            return plain[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == limit) {
+                if (!fill()) {
+                    return -1;
+                }
+            }
+            int chunk = Math.min(length, limit - position);
+            System.arraycopy(plain, position, target, offset, chunk);
+            position += chunk;
+            return chunk;
+        }
+
+        @Override
+        public void close() throws IOException {
+            encryptionService.zeroize(plain);
+            channel.close();
+        }
+    }
+}
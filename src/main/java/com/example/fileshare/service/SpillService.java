@@ -0,0 +1,59 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.storage.CiphertextStore;
+import com.example.fileshare.storage.TieredCiphertextStore;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Watches the memory budget and moves cold ciphertext to the disk tier.
+ * Does nothing unless fileshare.spill.enabled is set.
+ */
+@Service
+public class SpillService {
+
+    private final TieredCiphertextStore tieredStore;
+    private final StorageBudget storageBudget;
+    private final FileshareProperties.Spill settings;
+
+    public SpillService(CiphertextStore ciphertextStore, StorageBudget storageBudget,
+                        FileshareProperties properties) {
+        this.tieredStore = ciphertextStore instanceof TieredCiphertextStore tiered ? tiered : null;
+        this.storageBudget = storageBudget;
+        this.settings = properties.getSpill();
+    }
+
+    /**
+     * Spill oldest files while memory use is above the high watermark
+     */
+    @Scheduled(fixedDelay = 1000)
+    @Timed("fileshare.cleanup.run")
+    public void relievePressure() {
+        if (tieredStore == null) {
+            return;
+        }
+        tieredStore.purgeReleased();
+
+        long used = storageBudget.getUsedBytes();
+        long max = storageBudget.getMaxBytes();
+        if (used <= max * settings.getHighWatermark()) {
+            return;
+        }
+
+        long target = (long) (max * settings.getLowWatermark());
+        storageBudget.credit(tieredStore.spillOldest(used - target));
+    }
+
+    /**
+     * Reclaim disk from segments whose files were mostly downloaded or expired
+     */
+    @Scheduled(fixedDelay = 30000)
+    @Timed("fileshare.cleanup.run")
+    public void compact() {
+        if (tieredStore != null) {
+            tieredStore.compact(settings.getCompactBelow());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.dto.ServerStatsResponse;
+import com.example.fileshare.storage.CiphertextStore;
+import com.example.fileshare.storage.OffHeapCiphertextStore;
+import com.example.fileshare.storage.TieredCiphertextStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Builds the status snapshot from counters the services keep anyway.
+ * Nothing here walks the stores, so polling cost does not grow with them.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatusService {
+
+    private final InMemoryStorageService storageService;
+    private final MessageService messageService;
+    private final UploadSessionService uploadSessionService;
+    private final StorageBudget storageBudget;
+    private final EncryptionService encryptionService;
+    private final ExpiryScheduler expiryScheduler;
+    private final TrafficStats trafficStats;
+    private final CiphertextStore ciphertextStore;
+    private final FileshareProperties properties;
+
+    public ServerStatsResponse snapshot() {
+        CiphertextStore memoryStore = ciphertextStore;
+        long spilledBytes = 0;
+        long spillDiskBytes = 0;
+        if (ciphertextStore instanceof TieredCiphertextStore tiered) {
+            memoryStore = tiered.getMemoryStore();
+            spilledBytes = tiered.getSpillStore().getLiveBytes();
+            spillDiskBytes = tiered.getSpillStore().getDiskBytes();
+        }
+        long offHeapAllocated = memoryStore instanceof OffHeapCiphertextStore offHeap
+                ? offHeap.getAllocator().getAllocatedBytes()
+                : 0;
+
+        long used = storageBudget.getUsedBytes();
+        long reserved = storageBudget.getReservedBytes();
+
+        return ServerStatsResponse.builder()
+                .files(storageService.getFileCount())
+                .messages(messageService.getMessageCount())
+                .uploadSessions(uploadSessionService.getSessionCount())
+                .backend(properties.getStorage().getBackend().name())
+                .memoryBytes(Math.max(0, used - reserved))
+                .offHeapAllocatedBytes(offHeapAllocated)
+                .spilledBytes(spilledBytes)
+                .spillDiskBytes(spillDiskBytes)
+                .budgetMaxBytes(storageBudget.getMaxBytes())
+                .budgetUsedBytes(used)
+                .budgetReservedBytes(reserved)
+                .budgetHeadroomBytes(storageBudget.getHeadroomBytes())
+                .uploadsPerSecond1m(trafficStats.getUploadsPerSecond(60))
+                .uploadsPerSecond5m(trafficStats.getUploadsPerSecond(300))
+                .downloadsPerSecond1m(trafficStats.getDownloadsPerSecond(60))
+                .downloadsPerSecond5m(trafficStats.getDownloadsPerSecond(300))
+                .uploadsTotal(trafficStats.getUploadTotal())
+                .downloadsTotal(trafficStats.getDownloadTotal())
+                .encryptMegabytesPerSecond(encryptionService.getEncryptMegabytesPerSecond())
+                .decryptMegabytesPerSecond(encryptionService.getDecryptMegabytesPerSecond())
+                .expiryPending(expiryScheduler.getPendingCount())
+                .expiryLagMillis(expiryScheduler.getLagMillis())
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global byte budget for ciphertext held in RAM.
+ * Uploads reserve their Content-Length before the body is read;
+ * stored files are charged until they are deleted.
+ * The optional per-client quota caps bytes a client has in flight at once.
+ */
+@Service
+public class StorageBudget {
+
+    public enum Admission {
+        ADMITTED,
+        NODE_FULL,
+        CLIENT_QUOTA
+    }
+
+    private final long maxBytes;
+    private final long perClientMaxBytes;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final Map<String, Long> inFlightByClient = new ConcurrentHashMap<>();
+
+    public StorageBudget(FileshareProperties properties) {
+        FileshareProperties.Budget budget = properties.getBudget();
+        this.maxBytes = budget.getMaxBytes().toBytes();
+        this.perClientMaxBytes = budget.getPerClientMaxBytes() == null
+                ? 0
+                : budget.getPerClientMaxBytes().toBytes();
+    }
+
+    /**
+     * Reserve space for an upload that is about to be read
+     */
+    public Admission reserve(String clientId, long bytes) {
+        if (perClientMaxBytes > 0) {
+            boolean[] overQuota = {false};
+            inFlightByClient.compute(clientId, (id, inFlight) -> {
+                long next = (inFlight == null ? 0 : inFlight) + bytes;
+                if (next > perClientMaxBytes) {
+                    overQuota[0] = true;
+                    return inFlight;
+                }
+                return next;
+            });
+            if (overQuota[0]) {
+                return Admission.CLIENT_QUOTA;
+            }
+        }
+
+        if (!addWithinLimit(bytes)) {
+            releaseClient(clientId, bytes);
+            return Admission.NODE_FULL;
+        }
+
+        reservedBytes.addAndGet(bytes);
+        return Admission.ADMITTED;
+    }
+
+    /**
+     * Give back a reservation once the upload request has finished
+     */
+    public void cancel(String clientId, long bytes) {
+        usedBytes.addAndGet(-bytes);
+        reservedBytes.addAndGet(-bytes);
+        releaseClient(clientId, bytes);
+    }
+
+    /**
+     * Charge bytes of a stored file nobody reserved room for (e.g. one
+     * loaded from a snapshot); check and charge are one atomic step
+     *
+     * @return false, with nothing charged, if the bytes do not fit
+     */
+    public boolean charge(long bytes) {
+        return addWithinLimit(bytes);
+    }
+
+    /**
+     * Charge bytes of a stored file whose upload reservation already
+     * holds room for them - the reservation is given back when the
+     * request ends, so this is not checked against the limit again
+     */
+    public void chargeReserved(long bytes) {
+        usedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Credit bytes of a deleted file
+     */
+    public void credit(long bytes) {
+        usedBytes.addAndGet(-bytes);
+    }
+
+    private boolean addWithinLimit(long bytes) {
+        long used;
+        do {
+            used = usedBytes.get();
+            if (used + bytes > maxBytes) {
+                return false;
+            }
+        } while (!usedBytes.compareAndSet(used, used + bytes));
+        return true;
+    }
+
+    private void releaseClient(String clientId, long bytes) {
+        if (perClientMaxBytes <= 0) {
+            return;
+        }
+        inFlightByClient.computeIfPresent(clientId, (id, inFlight) ->
+                inFlight - bytes <= 0 ? null : inFlight - bytes);
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Part of the used bytes held by uploads still in flight
+     */
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHeadroomBytes() {
+        return Math.max(0, maxBytes - usedBytes.get());
+    }
+}
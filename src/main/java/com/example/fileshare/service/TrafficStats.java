@@ -0,0 +1,46 @@
+package com.example.fileshare.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Upload and download rates for the status endpoint.
+ * Counts only - nothing about which file was moved.
+ */
+@Service
+public class TrafficStats {
+
+    private static final int WINDOW_SECONDS = 300;
+
+    private final SlidingWindowCounter uploads = new SlidingWindowCounter(WINDOW_SECONDS);
+    private final SlidingWindowCounter downloads = new SlidingWindowCounter(WINDOW_SECONDS);
+    private final LongAdder uploadTotal = new LongAdder();
+    private final LongAdder downloadTotal = new LongAdder();
+
+    public void recordUpload() {
+        uploads.record(1);
+        uploadTotal.increment();
+    }
+
+    public void recordDownload() {
+        downloads.record(1);
+        downloadTotal.increment();
+    }
+
+    public double getUploadsPerSecond(int windowSeconds) {
+        return uploads.ratePerSecond(windowSeconds);
+    }
+
+    public double getDownloadsPerSecond(int windowSeconds) {
+        return downloads.ratePerSecond(windowSeconds);
+    }
+
+    public long getUploadTotal() {
+        return uploadTotal.sum();
+    }
+
+    public long getDownloadTotal() {
+        return downloadTotal.sum();
+    }
+}
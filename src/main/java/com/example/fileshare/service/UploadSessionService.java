@@ -0,0 +1,249 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.cluster.ClusterRing;
+import com.example.fileshare.model.UploadSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable chunked uploads.
+ * Chunks may arrive in any order and over parallel connections; each one
+ * is encrypted as soon as it arrives, and re-sent chunks are acknowledged
+ * without being stored twice. Idle sessions are dropped by the expiry wheel.
+ */
+@Service
+@RequiredArgsConstructor
+public class UploadSessionService {
+
+    /**
+     * Plaintext bytes per chunk - a whole number of GCM segments
+     */
+    public static final int CHUNK_SIZE = 16 * EncryptionService.SEGMENT_SIZE;
+    private static final int SEGMENTS_PER_CHUNK = CHUNK_SIZE / EncryptionService.SEGMENT_SIZE;
+    private static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    private final EncryptionService encryptionService;
+    private final InMemoryStorageService storageService;
+    private final StorageBudget storageBudget;
+    private final ExpiryScheduler expiryScheduler;
+    private final ClusterRing clusterRing;
+
+    /**
+     * Ciphertext bytes a file of the given size will take - what a session reserves
+     */
+    public static long reservationFor(long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid file size");
+        }
+        if (size > InMemoryStorageService.MAX_FILE_SIZE) {
+            throw new IllegalArgumentException("File too large (max 15MB)");
+        }
+        long segments = Math.max(1, (size + EncryptionService.SEGMENT_SIZE - 1) / EncryptionService.SEGMENT_SIZE);
+        return size + segments * EncryptionService.SEGMENT_OVERHEAD;
+    }
+
+    /**
+     * Open a session that owns an already-admitted budget reservation
+     */
+    public UploadSession createSession(String clientId, String filename, long size, long reservedBytes) {
+        UploadSession session = new UploadSession(
+                newSessionId(),
+                clientId,
+                filename,
+                size,
+                CHUNK_SIZE,
+                reservedBytes,
+                encryptionService.generateKey(),
+                encryptionService.generateIV()
+        );
+        sessions.put(session.getSessionId(), session);
+        scheduleIdleCheck(session);
+        return session;
+    }
+
+    /**
+     * Random ID that this node owns, so chunk requests route back here
+     */
+    private String newSessionId() {
+        String sessionId;
+        do {
+            sessionId = UUID.randomUUID().toString();
+        } while (!clusterRing.isLocal(sessionId));
+        return sessionId;
+    }
+
+    public UploadSession getSession(String sessionId) {
+        UploadSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new RuntimeException("Upload session not found");
+        }
+        return session;
+    }
+
+    /**
+     * Encrypt and keep one chunk
+     *
+     * @return true if the chunk had already been received (body ignored)
+     */
+    public boolean putChunk(String sessionId, int index, InputStream body) throws Exception {
+        UploadSession session = getSession(sessionId);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk index out of range");
+        }
+        session.touch();
+
+        if (session.hasChunk(index)) {
+            return true;
+        }
+
+        int length = session.chunkLength(index);
+        byte[] plain = new byte[length];
+        try {
+            if (body.readNBytes(plain, 0, length) != length || body.read() != -1) {
+                throw new IllegalArgumentException("Chunk " + index + " must be exactly " + length + " bytes");
+            }
+
+            byte[][] segments = encryptChunk(session, index, plain);
+            if (!session.storeChunk(index, segments) || session.isClosed()) {
+                // Lost a race with a duplicate, or the session ended meanwhile
+                wipe(segments);
+                return true;
+            }
+            return false;
+        } finally {
+            encryptionService.zeroize(plain);
+        }
+    }
+
+    private byte[][] encryptChunk(UploadSession session, int index, byte[] plain) throws Exception {
+        long totalSegments = Math.max(1,
+                (session.getSize() + EncryptionService.SEGMENT_SIZE - 1) / EncryptionService.SEGMENT_SIZE);
+        long firstSegment = (long) index * SEGMENTS_PER_CHUNK;
+        int count = Math.max(1, (plain.length + EncryptionService.SEGMENT_SIZE - 1) / EncryptionService.SEGMENT_SIZE);
+
+        byte[][] segments = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            int offset = i * EncryptionService.SEGMENT_SIZE;
+            long segmentIndex = firstSegment + i;
+            segments[i] = encryptionService.encryptSegment(
+                    plain,
+                    offset,
+                    Math.min(EncryptionService.SEGMENT_SIZE, plain.length - offset),
+                    session.getEncryptionKey(),
+                    session.getIv(),
+                    segmentIndex,
+                    segmentIndex == totalSegments - 1
+            );
+        }
+        return segments;
+    }
+
+    /**
+     * Turn a complete session into a stored file
+     */
+    public String commit(String sessionId) {
+        UploadSession session = getSession(sessionId);
+        if (!session.isComplete()) {
+            throw new IllegalStateException("Upload incomplete");
+        }
+        if (!sessions.remove(sessionId, session)) {
+            throw new RuntimeException("Upload session not found");
+        }
+        session.close();
+
+        List<byte[]> segments = new ArrayList<>();
+        for (int i = 0; i < session.getChunkCount(); i++) {
+            segments.addAll(Arrays.asList(session.takeChunk(i)));
+        }
+
+        try {
+            return storageService.storeEncrypted(
+                    session.getOriginalFilename(),
+                    session.getSize(),
+                    session.getEncryptionKey(),
+                    session.getIv(),
+                    segments
+            );
+        } catch (RuntimeException e) {
+            segments.forEach(encryptionService::zeroize);
+            encryptionService.secureWipe(session.getEncryptionKey());
+            throw e;
+        } finally {
+            // The stored file is charged on its own now
+            storageBudget.cancel(session.getClientId(), session.getReservedBytes());
+        }
+    }
+
+    /**
+     * Drop a session and everything received so far
+     */
+    public void abort(String sessionId) {
+        UploadSession session = sessions.get(sessionId);
+        if (session != null && sessions.remove(sessionId, session)) {
+            discard(session);
+        }
+    }
+
+    private void scheduleIdleCheck(UploadSession session) {
+        expiryScheduler.schedule(
+                session.getLastActivity().plus(SESSION_IDLE_TIMEOUT),
+                () -> expireIfIdle(session)
+        );
+    }
+
+    /**
+     * Reclaim abandoned sessions; active ones get a fresh deadline
+     */
+    private void expireIfIdle(UploadSession session) {
+        if (sessions.get(session.getSessionId()) != session) {
+            return;
+        }
+        if (session.getLastActivity().plus(SESSION_IDLE_TIMEOUT).isAfter(Instant.now())) {
+            scheduleIdleCheck(session);
+            return;
+        }
+        if (sessions.remove(session.getSessionId(), session)) {
+            discard(session);
+        }
+    }
+
+    private void discard(UploadSession session) {
+        session.close();
+        for (int i = 0; i < session.getChunkCount(); i++) {
+            byte[][] segments = session.takeChunk(i);
+            if (segments != null) {
+                wipe(segments);
+            }
+        }
+        encryptionService.secureWipe(session.getEncryptionKey());
+        storageBudget.cancel(session.getClientId(), session.getReservedBytes());
+    }
+
+    private void wipe(byte[][] segments) {
+        for (byte[] segment : segments) {
+            encryptionService.zeroize(segment);
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Emergency - drop every session
+     */
+    public void clearAll() {
+        sessions.keySet().forEach(this::abort);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.fileshare.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Ordered list of encrypted segments belonging to one file.
+ * Implementations decide where the bytes live (heap, off-heap, ...).
+ */
+public interface CiphertextBlob {
+
+    /**
+     * Append the next segment. Ownership of the array passes to the blob.
+     */
+    void append(byte[] segment);
+
+    /**
+     * Number of segments stored
+     */
+    int segmentCount();
+
+    /**
+     * Copy of the segment at the given index
+     */
+    byte[] readSegment(int index);
+
+    /**
+     * Write all segments back to back, as stored.
+     * Backends override this to hand their own buffers to the channel
+     * instead of copying each segment onto the heap.
+     */
+    default void transferTo(WritableByteChannel target) throws IOException {
+        for (int index = 0; index < segmentCount(); index++) {
+            ByteBuffer segment = ByteBuffer.wrap(readSegment(index));
+            while (segment.hasRemaining()) {
+                target.write(segment);
+            }
+        }
+    }
+
+    /**
+     * Total ciphertext bytes held
+     */
+    long sizeInBytes();
+
+    /**
+     * No more segments will be appended
+     */
+    default void seal() {
+    }
+
+    /**
+     * Zero out and free all segments (security measure)
+     * Safe to call more than once.
+     *
+     * @return bytes of memory given back (0 if already released or not in RAM)
+     */
+    long release();
+}
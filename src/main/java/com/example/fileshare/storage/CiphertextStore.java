@@ -0,0 +1,9 @@
+package com.example.fileshare.storage;
+
+/**
+ * Backend that hands out blobs for encrypted file content
+ */
+public interface CiphertextStore {
+
+    CiphertextBlob newBlob();
+}
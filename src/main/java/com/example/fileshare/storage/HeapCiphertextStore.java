@@ -0,0 +1,73 @@
+package com.example.fileshare.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps each ciphertext segment as a plain heap array
+ */
+public class HeapCiphertextStore implements CiphertextStore {
+
+    @Override
+    public CiphertextBlob newBlob() {
+        return new HeapBlob();
+    }
+
+    private static class HeapBlob extends PinnedBlob {
+
+        private final List<byte[]> segments = new ArrayList<>();
+        private long size;
+
+        @Override
+        public void append(byte[] segment) {
+            segments.add(segment);
+            size += segment.length;
+        }
+
+        @Override
+        public int segmentCount() {
+            return segments.size();
+        }
+
+        @Override
+        public byte[] readSegment(int index) {
+            pin();
+            try {
+                return segments.get(index).clone();
+            } finally {
+                unpin();
+            }
+        }
+
+        @Override
+        public void transferTo(WritableByteChannel target) throws IOException {
+            // Wrap the stored arrays - no clone per segment
+            pin();
+            try {
+                for (byte[] segment : segments) {
+                    ByteBuffer view = ByteBuffer.wrap(segment);
+                    while (view.hasRemaining()) {
+                        target.write(view);
+                    }
+                }
+            } finally {
+                unpin();
+            }
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return size;
+        }
+
+        @Override
+        protected void free() {
+            segments.forEach(segment -> Arrays.fill(segment, (byte) 0));
+            segments.clear();
+        }
+    }
+}
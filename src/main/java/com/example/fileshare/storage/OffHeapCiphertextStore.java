@@ -0,0 +1,98 @@
+package com.example.fileshare.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Keeps ciphertext segments in direct-memory slabs, outside the GC heap.
+ * Every segment occupies one fixed-size slot.
+ */
+public class OffHeapCiphertextStore implements CiphertextStore {
+
+    private final SlabAllocator allocator;
+
+    public OffHeapCiphertextStore(SlabAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    @Override
+    public CiphertextBlob newBlob() {
+        return new OffHeapBlob();
+    }
+
+    public SlabAllocator getAllocator() {
+        return allocator;
+    }
+
+    private class OffHeapBlob extends PinnedBlob {
+
+        private int[] slots = new int[4];
+        private int[] lengths = new int[4];
+        private int count;
+        private long size;
+
+        @Override
+        public void append(byte[] segment) {
+            if (count == slots.length) {
+                slots = Arrays.copyOf(slots, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+
+            slots[count] = allocator.allocate(segment, segment.length);
+            lengths[count] = segment.length;
+            count++;
+            size += segment.length;
+
+            // Heap copy is no longer needed
+            Arrays.fill(segment, (byte) 0);
+        }
+
+        @Override
+        public int segmentCount() {
+            return count;
+        }
+
+        @Override
+        public byte[] readSegment(int index) {
+            pin();
+            try {
+                if (index >= count) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return allocator.read(slots[index], lengths[index]);
+            } finally {
+                unpin();
+            }
+        }
+
+        @Override
+        public void transferTo(WritableByteChannel target) throws IOException {
+            // Slot slices are direct buffers - nothing is copied onto the heap
+            pin();
+            try {
+                for (int i = 0; i < count; i++) {
+                    ByteBuffer slot = allocator.view(slots[i], lengths[i]);
+                    while (slot.hasRemaining()) {
+                        target.write(slot);
+                    }
+                }
+            } finally {
+                unpin();
+            }
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return size;
+        }
+
+        @Override
+        protected void free() {
+            for (int i = 0; i < count; i++) {
+                allocator.release(slots[i], lengths[i]);
+            }
+        }
+    }
+}
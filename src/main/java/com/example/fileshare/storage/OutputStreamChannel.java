@@ -0,0 +1,58 @@
+package com.example.fileshare.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Channel view of a servlet output stream.
+ * Heap buffers are written from their backing array; direct and mapped
+ * buffers go through one reused chunk, since the stream only takes arrays.
+ * Unlike Channels.newChannel, heap segments are not copied again.
+ */
+public final class OutputStreamChannel implements WritableByteChannel {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private byte[] chunk;
+    private boolean open = true;
+
+    public OutputStreamChannel(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        if (src.hasArray()) {
+            out.write(src.array(), src.arrayOffset() + src.position(), length);
+            src.position(src.limit());
+            return length;
+        }
+
+        if (chunk == null) {
+            chunk = new byte[CHUNK_SIZE];
+        }
+        while (src.hasRemaining()) {
+            int n = Math.min(chunk.length, src.remaining());
+            src.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+        return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Leaves the underlying stream open - the container owns it
+     */
+    @Override
+    public void close() {
+        open = false;
+    }
+}
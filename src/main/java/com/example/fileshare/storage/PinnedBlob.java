@@ -0,0 +1,62 @@
+package com.example.fileshare.storage;
+
+/**
+ * Base for blobs whose memory is reused once released.
+ * Reads pin the blob; a release while pinned only marks it, and the last
+ * reader frees it - so a freed slot or array never reaches a download,
+ * and a delete never waits for a slow one.
+ */
+abstract class PinnedBlob implements CiphertextBlob {
+
+    private int readers;
+    private boolean released;
+    private boolean freed;
+
+    /**
+     * Hold the blob for a read - fails once it was released
+     */
+    protected final synchronized void pin() {
+        if (released) {
+            throw new IllegalStateException("Blob released");
+        }
+        readers++;
+    }
+
+    protected final void unpin() {
+        synchronized (this) {
+            readers--;
+            if (!released || readers > 0 || freed) {
+                return;
+            }
+            freed = true;
+        }
+        free();
+    }
+
+    /**
+     * Bytes are reported as freed right away, even when the last reader
+     * still has to give them back
+     */
+    @Override
+    public final long release() {
+        long bytes;
+        synchronized (this) {
+            if (released) {
+                return 0;
+            }
+            released = true;
+            bytes = sizeInBytes();
+            if (readers > 0) {
+                return bytes;
+            }
+            freed = true;
+        }
+        free();
+        return bytes;
+    }
+
+    /**
+     * Zero out and give back the memory - called exactly once, with no readers left
+     */
+    protected abstract void free();
+}
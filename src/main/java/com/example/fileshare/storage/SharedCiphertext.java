@@ -0,0 +1,99 @@
+package com.example.fileshare.storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One stored blob referenced by several files.
+ * Every file holds its own handle; releasing a handle only drops a
+ * reference, and the blob itself is wiped with the last one.
+ */
+public class SharedCiphertext {
+
+    private static final int RELEASED = -1;
+
+    private final CiphertextBlob blob;
+    private final Runnable onLastRelease;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final CiphertextBlob ownerHandle = new Handle();
+
+    public SharedCiphertext(CiphertextBlob blob, Runnable onLastRelease) {
+        this.blob = blob;
+        this.onLastRelease = onLastRelease;
+    }
+
+    /**
+     * Handle for whoever created the blob - it holds the first reference
+     */
+    public CiphertextBlob getOwnerHandle() {
+        return ownerHandle;
+    }
+
+    /**
+     * Another handle to the same blob, or null once the last one was released
+     */
+    public CiphertextBlob acquire() {
+        int current = references.get();
+        while (current > 0) {
+            if (references.compareAndSet(current, current + 1)) {
+                return new Handle();
+            }
+            current = references.get();
+        }
+        return null;
+    }
+
+    public int getReferences() {
+        return Math.max(0, references.get());
+    }
+
+    public long sizeInBytes() {
+        return blob.sizeInBytes();
+    }
+
+    private long releaseReference() {
+        // A concurrent acquire can still revive the count from 0 before we mark it released
+        if (references.decrementAndGet() != 0 || !references.compareAndSet(0, RELEASED)) {
+            return 0;
+        }
+        onLastRelease.run();
+        return blob.release();
+    }
+
+    private class Handle implements CiphertextBlob {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void append(byte[] segment) {
+            throw new UnsupportedOperationException("Shared ciphertext is read-only");
+        }
+
+        @Override
+        public int segmentCount() {
+            return blob.segmentCount();
+        }
+
+        @Override
+        public byte[] readSegment(int index) {
+            return blob.readSegment(index);
+        }
+
+        @Override
+        public void transferTo(WritableByteChannel target) throws IOException {
+            blob.transferTo(target);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return blob.sizeInBytes();
+        }
+
+        @Override
+        public long release() {
+            return released.compareAndSet(false, true) ? releaseReference() : 0;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.fileshare.storage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size slot allocator over direct (off-heap) slabs.
+ * Slots are addressed by a single int handle: slab index * slotsPerSlab + slot.
+ * Released slots are zeroed and pushed onto a free list for reuse.
+ */
+public class SlabAllocator {
+
+    private final int slotSize;
+    private final int slotsPerSlab;
+    private final int maxSlabs;
+    private final byte[] zeros;
+
+    // Direct allocation may stall (reserveMemory retries), so guard with a
+    // ReentrantLock rather than synchronized to avoid pinning virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<ByteBuffer> slabs = new CopyOnWriteArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private volatile int slotsInUse;
+    private volatile long bytesInUse;
+
+    public SlabAllocator(int slotSize, long slabBytes, long maxBytes) {
+        this.slotSize = slotSize;
+        this.slotsPerSlab = (int) Math.max(1, Math.min(slabBytes, Integer.MAX_VALUE) / slotSize);
+        this.maxSlabs = (int) Math.max(1, maxBytes / ((long) slotSize * slotsPerSlab));
+        this.zeros = new byte[slotSize];
+    }
+
+    /**
+     * Copy data into a free slot and return its handle
+     */
+    public int allocate(byte[] data, int length) {
+        if (length > slotSize) {
+            throw new IllegalArgumentException("Segment larger than slot");
+        }
+
+        int handle;
+        lock.lock();
+        try {
+            Integer free = freeSlots.pollFirst();
+            if (free == null) {
+                free = growAndTake();
+            }
+            handle = free;
+            slotsInUse++;
+            bytesInUse += length;
+        } finally {
+            lock.unlock();
+        }
+
+        slab(handle).put(offset(handle), data, 0, length);
+        return handle;
+    }
+
+    /**
+     * Copy the first length bytes of a slot into a new heap array
+     */
+    public byte[] read(int handle, int length) {
+        byte[] data = new byte[length];
+        slab(handle).get(offset(handle), data, 0, length);
+        return data;
+    }
+
+    /**
+     * Read-only direct view of the first length bytes of a slot
+     */
+    public ByteBuffer view(int handle, int length) {
+        return slab(handle).slice(offset(handle), length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Zero a slot and return it to the free list
+     */
+    public void release(int handle, int length) {
+        slab(handle).put(offset(handle), zeros, 0, slotSize);
+
+        lock.lock();
+        try {
+            freeSlots.addFirst(handle);
+            slotsInUse--;
+            bytesInUse -= length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int growAndTake() {
+        if (slabs.size() >= maxSlabs) {
+            throw new IllegalStateException("Off-heap storage exhausted");
+        }
+
+        int slabIndex = slabs.size();
+        slabs.add(ByteBuffer.allocateDirect(slotSize * slotsPerSlab));
+
+        int first = slabIndex * slotsPerSlab;
+        for (int slot = slotsPerSlab - 1; slot > 0; slot--) {
+            freeSlots.addFirst(first + slot);
+        }
+        return first;
+    }
+
+    private ByteBuffer slab(int handle) {
+        return slabs.get(handle / slotsPerSlab);
+    }
+
+    private int offset(int handle) {
+        return (handle % slotsPerSlab) * slotSize;
+    }
+
+    /**
+     * Bytes reserved off-heap across all slabs
+     */
+    public long getCapacityBytes() {
+        return (long) slabs.size() * slotsPerSlab * slotSize;
+    }
+
+    /**
+     * Slot bytes handed out to blobs
+     */
+    public long getAllocatedBytes() {
+        return (long) slotsInUse * slotSize;
+    }
+
+    /**
+     * Ciphertext bytes actually stored in allocated slots
+     */
+    public long getUsedBytes() {
+        return bytesInUse;
+    }
+
+    public int getSlabCount() {
+        return slabs.size();
+    }
+
+    /**
+     * Share of allocated slot space left unused by short (final) segments
+     */
+    public double getFragmentation() {
+        long allocated = (long) slotsInUse * slotSize;
+        return allocated == 0 ? 0.0 : 1.0 - (double) bytesInUse / allocated;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.fileshare.storage;
+
+/**
+ * Where a spilled blob's segments live inside one segment file
+ */
+record SpillLocation(SpillSegment segment, long[] offsets, int[] lengths, long size) {
+}
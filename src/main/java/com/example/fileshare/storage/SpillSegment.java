@@ -0,0 +1,116 @@
+package com.example.fileshare.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One append-only spill file, pre-sized and mapped read-only once.
+ * Writes go through the channel; on Linux they are visible through the
+ * mapping immediately since both share the page cache.
+ */
+final class SpillSegment {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+
+    private volatile long writePosition; // written under SpillStore's writer lock
+    private volatile boolean sealed;
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final Set<TieredCiphertextStore.TieredBlob> owners = ConcurrentHashMap.newKeySet();
+
+    SpillSegment(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.write(ByteBuffer.allocate(1), capacity - 1); // sparse file of full size
+        this.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+    }
+
+    boolean fits(long bytes) {
+        return writePosition + bytes <= capacity;
+    }
+
+    long append(byte[] data) throws IOException {
+        long offset = writePosition;
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+        writePosition += data.length;
+        return offset;
+    }
+
+    byte[] read(long offset, int length) {
+        byte[] data = new byte[length];
+        map.get(Math.toIntExact(offset), data, 0, length);
+        return data;
+    }
+
+    /**
+     * Send a byte range straight from the file (sendfile where the target allows)
+     */
+    void transferTo(long offset, long length, WritableByteChannel target) throws IOException {
+        long sent = 0;
+        while (sent < length) {
+            sent += channel.transferTo(offset + sent, length - sent, target);
+        }
+    }
+
+    void addOwner(TieredCiphertextStore.TieredBlob owner, long bytes) {
+        owners.add(owner);
+        liveBytes.addAndGet(bytes);
+    }
+
+    /**
+     * @return true once a sealed segment holds no live data and can be deleted
+     */
+    boolean removeOwner(TieredCiphertextStore.TieredBlob owner, long bytes) {
+        owners.remove(owner);
+        return liveBytes.addAndGet(-bytes) <= 0 && sealed;
+    }
+
+    void seal() {
+        sealed = true;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    long getLiveBytes() {
+        return liveBytes.get();
+    }
+
+    long getWrittenBytes() {
+        return writePosition;
+    }
+
+    Set<TieredCiphertextStore.TieredBlob> getOwners() {
+        return owners;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    void delete() {
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Nothing readable is left in it - the keys were never written
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.fileshare.storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only segment files for ciphertext pushed out of RAM.
+ * Only ciphertext is written - keys and IVs stay in memory, so deleting
+ * a file's key is enough to make its spilled bytes unreadable.
+ */
+public class SpillStore {
+
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxBytes;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<SpillSegment> segments = new CopyOnWriteArrayList<>();
+    private final AtomicLong diskBytes = new AtomicLong();
+    private SpillSegment active;
+    private long nextSegmentId;
+
+    public SpillStore(Path directory, long segmentBytes, long maxBytes) throws IOException {
+        // A segment is mapped as one buffer, which int-indexes its bytes
+        if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Spill segment size must be between 1 byte and 2GB");
+        }
+        this.directory = directory;
+        this.segmentBytes = Math.toIntExact(segmentBytes);
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory);
+        // Leftovers from a previous run are undecryptable - their keys died with it
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : stale) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Copy every segment of the source blob to disk, contiguously
+     */
+    SpillLocation write(CiphertextBlob source, TieredCiphertextStore.TieredBlob owner) throws IOException {
+        int count = source.segmentCount();
+        long size = source.sizeInBytes();
+        long[] offsets = new long[count];
+        int[] lengths = new int[count];
+
+        writeLock.lock();
+        try {
+            SpillSegment segment = segmentWithRoom(size);
+            for (int i = 0; i < count; i++) {
+                byte[] data = source.readSegment(i);
+                offsets[i] = segment.append(data);
+                lengths[i] = data.length;
+            }
+            segment.addOwner(owner, size);
+            return new SpillLocation(segment, offsets, lengths, size);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    byte[] read(SpillLocation location, int index) {
+        return location.segment().read(location.offsets()[index], location.lengths()[index]);
+    }
+
+    /**
+     * Segments of one blob are written contiguously, so one range covers them all
+     */
+    void transferTo(SpillLocation location, WritableByteChannel target) throws IOException {
+        long start = location.offsets().length == 0 ? 0 : location.offsets()[0];
+        location.segment().transferTo(start, location.size(), target);
+    }
+
+    /**
+     * Drop a blob's claim on its segment; empty sealed segments are deleted
+     */
+    void free(SpillLocation location, TieredCiphertextStore.TieredBlob owner) {
+        SpillSegment segment = location.segment();
+        if (segment.removeOwner(owner, location.size())) {
+            deleteSegment(segment);
+        }
+    }
+
+    /**
+     * Sealed segments whose live share fell below the threshold
+     */
+    List<SpillSegment> sparseSegments(double minLiveRatio) {
+        return segments.stream()
+                .filter(SpillSegment::isSealed)
+                .filter(segment -> segment.getLiveBytes() < segment.getWrittenBytes() * minLiveRatio)
+                .toList();
+    }
+
+    /**
+     * Called once all owners moved out of a segment during compaction
+     */
+    void deleteIfEmpty(SpillSegment segment) {
+        if (segment.isSealed() && segment.getLiveBytes() <= 0) {
+            deleteSegment(segment);
+        }
+    }
+
+    private SpillSegment segmentWithRoom(long size) throws IOException {
+        if (active != null && active.fits(size)) {
+            return active;
+        }
+        if (size > segmentBytes || diskBytes.get() + segmentBytes > maxBytes) {
+            throw new IOException("Spill space exhausted");
+        }
+
+        SpillSegment previous = active;
+        active = new SpillSegment(directory.resolve("spill-" + nextSegmentId++ + SUFFIX), segmentBytes);
+        segments.add(active);
+        diskBytes.addAndGet(segmentBytes);
+
+        if (previous != null) {
+            previous.seal();
+            deleteIfEmpty(previous);
+        }
+        return active;
+    }
+
+    private void deleteSegment(SpillSegment segment) {
+        if (segments.remove(segment)) {
+            diskBytes.addAndGet(-segmentBytes);
+            segment.delete();
+        }
+    }
+
+    /**
+     * Disk space reserved by segment files
+     */
+    public long getDiskBytes() {
+        return diskBytes.get();
+    }
+
+    /**
+     * Ciphertext bytes on disk that still belong to a file
+     */
+    public long getLiveBytes() {
+        return segments.stream().mapToLong(SpillSegment::getLiveBytes).sum();
+    }
+}
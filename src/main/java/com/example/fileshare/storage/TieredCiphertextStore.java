@@ -0,0 +1,337 @@
+package com.example.fileshare.storage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Memory tier in front of a disk spill tier.
+ * New blobs live in the memory backend; under pressure the oldest sealed
+ * blobs are copied to spill segments and their memory is released.
+ */
+public class TieredCiphertextStore implements CiphertextStore {
+
+    private static final long BUSY = -1;
+
+    private final CiphertextStore memory;
+    private final SpillStore spill;
+
+    // Creation order = coldest first, since every file is downloaded at most once
+    private final Queue<TieredBlob> resident = new ConcurrentLinkedQueue<>();
+
+    public TieredCiphertextStore(CiphertextStore memory, SpillStore spill) {
+        this.memory = memory;
+        this.spill = spill;
+    }
+
+    @Override
+    public CiphertextBlob newBlob() {
+        return new TieredBlob(memory.newBlob());
+    }
+
+    public CiphertextStore getMemoryStore() {
+        return memory;
+    }
+
+    public SpillStore getSpillStore() {
+        return spill;
+    }
+
+    /**
+     * Spill the oldest resident blobs until the requested memory is freed
+     *
+     * @return bytes of memory actually freed
+     */
+    public long spillOldest(long bytesToFree) {
+        long freed = 0;
+        List<TieredBlob> busy = new ArrayList<>();
+        while (freed < bytesToFree) {
+            TieredBlob blob = resident.poll();
+            if (blob == null) {
+                break;
+            }
+            try {
+                long released = blob.spill();
+                if (released == BUSY) {
+                    busy.add(blob);
+                } else {
+                    freed += released;
+                }
+            } catch (IOException e) {
+                // Disk full - keep it in memory
+                busy.add(blob);
+                break;
+            }
+        }
+        resident.addAll(busy);
+        return freed;
+    }
+
+    /**
+     * Forget blobs that were deleted while still resident
+     */
+    public void purgeReleased() {
+        resident.removeIf(blob -> blob.released);
+    }
+
+    /**
+     * Move live blobs out of mostly-dead segments so those files can be deleted
+     */
+    public void compact(double minLiveRatio) {
+        for (SpillSegment segment : spill.sparseSegments(minLiveRatio)) {
+            for (TieredBlob owner : segment.getOwners()) {
+                try {
+                    owner.relocate(segment);
+                } catch (IOException e) {
+                    return;
+                }
+            }
+            spill.deleteIfEmpty(segment);
+        }
+    }
+
+    /**
+     * The lock guards the tier swap and is only held for short steps.
+     * Whole-blob downloads pin the blob instead: a pinned blob is neither
+     * spilled nor relocated, and a release while pinned is carried out by
+     * the last reader, so deletes never wait on a slow client.
+     */
+    public class TieredBlob implements CiphertextBlob {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final AtomicInteger readers = new AtomicInteger();
+        private CiphertextBlob inMemory;
+        private SpillLocation onDisk;
+        private volatile boolean released;
+        private boolean freed;
+
+        TieredBlob(CiphertextBlob inMemory) {
+            this.inMemory = inMemory;
+        }
+
+        @Override
+        public void append(byte[] segment) {
+            inMemory.append(segment);
+        }
+
+        @Override
+        public void seal() {
+            resident.add(this);
+        }
+
+        @Override
+        public int segmentCount() {
+            lock.readLock().lock();
+            try {
+                return inMemory != null ? inMemory.segmentCount() : onDisk.lengths().length;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public byte[] readSegment(int index) {
+            lock.readLock().lock();
+            try {
+                if (released) {
+                    throw new IllegalStateException("Blob released");
+                }
+                return inMemory != null ? inMemory.readSegment(index) : spill.read(onDisk, index);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void transferTo(WritableByteChannel target) throws IOException {
+            CiphertextBlob memoryTier;
+            SpillLocation diskTier;
+            lock.readLock().lock();
+            try {
+                if (released) {
+                    throw new IllegalStateException("Blob released");
+                }
+                readers.incrementAndGet();
+                memoryTier = inMemory;
+                diskTier = onDisk;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            // Stream outside the lock - the pin keeps both tiers where they are
+            try {
+                if (memoryTier != null) {
+                    memoryTier.transferTo(target);
+                } else {
+                    spill.transferTo(diskTier, target);
+                }
+            } finally {
+                if (readers.decrementAndGet() == 0 && released) {
+                    lock.writeLock().lock();
+                    try {
+                        freeTiers();
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public long sizeInBytes() {
+            lock.readLock().lock();
+            try {
+                return inMemory != null ? inMemory.sizeInBytes() : onDisk.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public boolean isSpilled() {
+            lock.readLock().lock();
+            try {
+                return onDisk != null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public long release() {
+            lock.writeLock().lock();
+            try {
+                if (released) {
+                    return 0;
+                }
+                released = true;
+
+                if (readers.get() > 0) {
+                    // The last reader frees it; the memory is reported as freed now
+                    return inMemory != null ? inMemory.sizeInBytes() : 0;
+                }
+                return freeTiers();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Give back memory or disk space once - caller holds the write lock
+         */
+        private long freeTiers() {
+            if (freed) {
+                return 0;
+            }
+            freed = true;
+            if (inMemory != null) {
+                return inMemory.release();
+            }
+            spill.free(onDisk, this);
+            return 0;
+        }
+
+        /**
+         * Copy to disk, then swap tiers.
+         * Gives up if a download is streaming the blob right now
+         * rather than waiting on a slow client.
+         *
+         * @return memory freed, or BUSY if the blob should be retried later
+         */
+        long spill() throws IOException {
+            SpillLocation location;
+
+            // Readers may continue while the copy runs
+            lock.readLock().lock();
+            try {
+                if (released || inMemory == null) {
+                    return 0;
+                }
+                location = spill.write(inMemory, this);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if (!lock.writeLock().tryLock()) {
+                spill.free(location, this);
+                return BUSY;
+            }
+            try {
+                if (readers.get() > 0) {
+                    spill.free(location, this);
+                    return BUSY;
+                }
+                if (released) {
+                    spill.free(location, this);
+                    return 0;
+                }
+                long freed = inMemory.release();
+                inMemory = null;
+                onDisk = location;
+                return freed;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Rewrite into the active segment if still stored in the given one
+         */
+        void relocate(SpillSegment from) throws IOException {
+            if (!lock.writeLock().tryLock()) {
+                return; // being downloaded - retry on the next pass
+            }
+            try {
+                if (released || readers.get() > 0 || onDisk == null || onDisk.segment() != from) {
+                    return;
+                }
+                SpillLocation moved = spill.write(new SpilledView(onDisk), this);
+                spill.free(onDisk, this);
+                onDisk = moved;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Read-only view used to copy a spilled blob into another segment
+     */
+    private class SpilledView implements CiphertextBlob {
+
+        private final SpillLocation location;
+
+        SpilledView(SpillLocation location) {
+            this.location = location;
+        }
+
+        @Override
+        public void append(byte[] segment) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int segmentCount() {
+            return location.lengths().length;
+        }
+
+        @Override
+        public byte[] readSegment(int index) {
+            return spill.read(location, index);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return location.size();
+        }
+
+        @Override
+        public long release() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.fileshare.model;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncryptedFileTest {
+
+    private static final int THREADS = 16;
+
+    @RepeatedTest(20)
+    void exactlyOneThreadClaimsTheDownload() throws Exception {
+        EncryptedFile file = newFile();
+
+        assertThat(race(() -> file.transition(FileState.AVAILABLE, FileState.CLAIMED))).isEqualTo(1);
+        assertThat(file.getState()).isEqualTo(FileState.CLAIMED);
+    }
+
+    @RepeatedTest(20)
+    void exactlyOneThreadDeletes() throws Exception {
+        EncryptedFile file = newFile();
+
+        assertThat(race(file::markDeleted)).isEqualTo(1);
+        assertThat(file.getState()).isEqualTo(FileState.DELETED);
+    }
+
+    @RepeatedTest(20)
+    void exactlyOneThreadGetsTheKey() throws Exception {
+        EncryptedFile file = newFile();
+
+        assertThat(race(file::markKeyReleased)).isEqualTo(1);
+        assertThat(file.isKeyReleased()).isTrue();
+    }
+
+    @Test
+    void claimAndKeyReleaseExcludeEachOther() {
+        EncryptedFile claimed = newFile();
+        assertThat(claimed.transition(FileState.AVAILABLE, FileState.CLAIMED)).isTrue();
+        assertThat(claimed.markKeyReleased()).isFalse();
+
+        EncryptedFile released = newFile();
+        assertThat(released.markKeyReleased()).isTrue();
+        assertThat(released.transition(FileState.AVAILABLE, FileState.CLAIMED)).isTrue();
+        assertThat(released.markKeyReleased()).isFalse();
+    }
+
+    @Test
+    void keyStaysWhileDecrypting() {
+        EncryptedFile file = newFile();
+        assertThat(file.beginDecrypt()).isTrue();
+        assertThat(file.beginDecrypt()).isTrue();
+
+        assertThat(file.markKeyReleased()).isFalse();
+        file.endDecrypt();
+        assertThat(file.markKeyReleased()).isFalse();
+        file.endDecrypt();
+        assertThat(file.markKeyReleased()).isTrue();
+        assertThat(file.beginDecrypt()).isFalse();
+    }
+
+    @Test
+    void transitionFromWrongStateFails() {
+        EncryptedFile file = newFile();
+        file.markDeleted();
+
+        assertThat(file.transition(FileState.AVAILABLE, FileState.CLAIMED)).isFalse();
+        assertThat(file.markDeleted()).isFalse();
+        assertThat(file.getState()).isEqualTo(FileState.DELETED);
+    }
+
+    private static EncryptedFile newFile() {
+        Instant now = Instant.now();
+        return EncryptedFile.builder()
+                .originalFilename("file.bin")
+                .encryptionKey(new byte[32])
+                .iv(new byte[12])
+                .createdAt(now)
+                .expiresAt(now.plusSeconds(60))
+                .build();
+    }
+
+    /**
+     * Start all threads at once on the same action
+     *
+     * @return how many of them succeeded
+     */
+    private static int race(BooleanSupplier action) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService pool = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return action.getAsBoolean();
+                }));
+            }
+            start.countDown();
+
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    winners++;
+                }
+            }
+            return winners;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.fileshare.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServedRangesTest {
+
+    @Test
+    void coveredOnceAllRangesMeet() {
+        ServedRanges ranges = new ServedRanges();
+
+        assertThat(ranges.add(0, 10, 30)).isFalse();
+        assertThat(ranges.add(20, 30, 30)).isFalse();
+        assertThat(ranges.add(10, 20, 30)).isTrue();
+    }
+
+    @Test
+    void overlappingRangesMerge() {
+        ServedRanges ranges = new ServedRanges();
+
+        assertThat(ranges.add(5, 15, 30)).isFalse();
+        assertThat(ranges.add(0, 8, 30)).isFalse();
+        assertThat(ranges.add(12, 30, 30)).isTrue();
+    }
+
+    @Test
+    void gapKeepsFileIncomplete() {
+        ServedRanges ranges = new ServedRanges();
+
+        assertThat(ranges.add(0, 10, 30)).isFalse();
+        assertThat(ranges.add(11, 30, 30)).isFalse();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.model.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactMessageStoreTest {
+
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    void storedMessageReadsBack() {
+        CompactMessageStore store = new CompactMessageStore();
+        assertThat(store.add("abc", 1, "hello", "sender", NOW, NOW + 1000)).isTrue();
+
+        Message message = store.get("abc", NOW);
+        assertThat(message.getContent()).isEqualTo("hello");
+        assertThat(message.getSenderId()).isEqualTo("sender");
+        assertThat(message.getSequence()).isEqualTo(1);
+    }
+
+    @Test
+    void takenIdIsRefused() {
+        CompactMessageStore store = new CompactMessageStore();
+        assertThat(store.add("abc", 1, "first", "s", NOW, NOW + 1000)).isTrue();
+
+        assertThat(store.add("abc", 2, "second", "s", NOW, NOW + 1000)).isFalse();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void cursorPagesInSequenceOrder() {
+        CompactMessageStore store = new CompactMessageStore();
+        for (int sequence = 1; sequence <= 5; sequence++) {
+            store.add("m" + sequence, sequence, "message " + sequence, "s", NOW, NOW + 1000);
+        }
+
+        List<Message> page = store.after(2, 2, NOW);
+        assertThat(page).extracting(Message::getSequence).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void expiredAndRemovedMessagesAreGone() {
+        CompactMessageStore store = new CompactMessageStore();
+        store.add("short", 1, "a", "s", NOW, NOW + 10);
+        store.add("long", 2, "b", "s", NOW, NOW + 1000);
+        store.add("gone", 3, "c", "s", NOW, NOW + 1000);
+
+        assertThat(store.remove("gone")).isTrue();
+        assertThat(store.expire(NOW + 100)).isEqualTo(1);
+        assertThat(store.get("short", NOW + 100)).isNull();
+        assertThat(store.get("long", NOW + 100)).isNotNull();
+        assertThat(store.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EncryptionServiceTest {
+
+    private final EncryptionService encryptionService = new EncryptionService(new FileshareProperties());
+    private final byte[] key = encryptionService.generateKey();
+    private final byte[] iv = encryptionService.generateIV();
+
+    @Test
+    void segmentRoundTrip() throws Exception {
+        byte[] plain = new byte[EncryptionService.SEGMENT_SIZE];
+        ThreadLocalRandom.current().nextBytes(plain);
+
+        byte[] sealed = encryptionService.encryptSegment(plain, plain.length, key, iv, 3, false);
+
+        assertThat(sealed).hasSize(plain.length + EncryptionService.SEGMENT_OVERHEAD);
+        assertThat(encryptionService.decryptSegment(sealed, key, iv, 3, false)).isEqualTo(plain);
+    }
+
+    @Test
+    void segmentFromMiddleOfBufferRoundTrips() throws Exception {
+        byte[] buffer = "headerPAYLOADtrailer".getBytes(StandardCharsets.UTF_8);
+
+        byte[] sealed = encryptionService.encryptSegment(buffer, 6, 7, key, iv, 0, true);
+        byte[] out = new byte[EncryptionService.SEGMENT_SIZE];
+        int length = encryptionService.decryptSegment(sealed, out, key, iv, 0, true);
+
+        assertThat(new String(out, 0, length, StandardCharsets.UTF_8)).isEqualTo("PAYLOAD");
+    }
+
+    @Test
+    void emptyLastSegmentRoundTrips() throws Exception {
+        byte[] sealed = encryptionService.encryptSegment(new byte[0], 0, key, iv, 0, true);
+
+        assertThat(encryptionService.decryptSegment(sealed, key, iv, 0, true)).isEmpty();
+    }
+
+    @Test
+    void nonceDependsOnSegmentIndex() throws Exception {
+        byte[] plain = new byte[64];
+
+        byte[] first = encryptionService.encryptSegment(plain, plain.length, key, iv, 0, false);
+        byte[] second = encryptionService.encryptSegment(plain, plain.length, key, iv, 1, false);
+
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    void movedSegmentFailsAuthentication() throws Exception {
+        byte[] sealed = encryptionService.encryptSegment(new byte[64], 64, key, iv, 1, false);
+
+        assertThatThrownBy(() -> encryptionService.decryptSegment(sealed, key, iv, 2, false))
+                .isInstanceOf(Exception.class);
+    }
+
+    @Test
+    void lastFlagIsAuthenticated() throws Exception {
+        byte[] sealed = encryptionService.encryptSegment(new byte[64], 64, key, iv, 0, false);
+
+        // A stream cut after this segment cannot pass it off as the final one
+        assertThatThrownBy(() -> encryptionService.decryptSegment(sealed, key, iv, 0, true))
+                .isInstanceOf(Exception.class);
+    }
+
+    @Test
+    void contextIsAuthenticated() throws Exception {
+        byte[] plain = new byte[64];
+        byte[] context = {1, 2, 3, 4};
+        byte[] sealed = encryptionService.encryptSegment(plain, 0, plain.length, key, iv, 0, true, context);
+        byte[] out = new byte[plain.length];
+
+        assertThat(encryptionService.decryptSegment(sealed, out, key, iv, 0, true, context.clone()))
+                .isEqualTo(plain.length);
+        assertThatThrownBy(() -> encryptionService.decryptSegment(sealed, out, key, iv, 0, true, new byte[]{1, 2, 3, 5}))
+                .isInstanceOf(Exception.class);
+        assertThatThrownBy(() -> encryptionService.decryptSegment(sealed, out, key, iv, 0, true))
+                .isInstanceOf(Exception.class);
+    }
+
+    @Test
+    void tamperedCiphertextFailsAuthentication() throws Exception {
+        byte[] sealed = encryptionService.encryptSegment(new byte[64], 64, key, iv, 0, true);
+        sealed[10] ^= 1;
+
+        assertThatThrownBy(() -> encryptionService.decryptSegment(sealed, key, iv, 0, true))
+                .isInstanceOf(Exception.class);
+    }
+
+    @Test
+    void wrongKeyFailsAuthentication() throws Exception {
+        byte[] sealed = encryptionService.encryptSegment(new byte[64], 64, key, iv, 0, true);
+        byte[] otherKey = Arrays.copyOf(key, key.length);
+        otherKey[0] ^= 1;
+
+        assertThatThrownBy(() -> encryptionService.decryptSegment(sealed, otherKey, iv, 0, true))
+                .isInstanceOf(Exception.class);
+    }
+
+    @Test
+    void wholeBufferRoundTrip() throws Exception {
+        byte[] plain = "secret".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(encryptionService.decrypt(encryptionService.encrypt(plain, key, iv), key, iv)).isEqualTo(plain);
+    }
+}
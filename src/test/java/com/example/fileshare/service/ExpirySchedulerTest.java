@@ -0,0 +1,97 @@
+package com.example.fileshare.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpirySchedulerTest {
+
+    @Test
+    void firesOnceTheDeadlineTickPasses() {
+        ExpiryScheduler scheduler = new ExpiryScheduler();
+        long now = System.currentTimeMillis();
+        LongAdder fired = new LongAdder();
+
+        scheduler.schedule(Instant.ofEpochMilli(now + 5_000), fired::increment);
+        scheduler.advanceTo(now + 3_000);
+        assertThat(fired.sum()).isZero();
+
+        scheduler.advanceTo(now + 7_000);
+        assertThat(fired.sum()).isEqualTo(1);
+        assertThat(scheduler.getPendingCount()).isZero();
+    }
+
+    @Test
+    void laterRevolutionsWaitForTheirTurn() {
+        ExpiryScheduler scheduler = new ExpiryScheduler();
+        long now = System.currentTimeMillis();
+        LongAdder fired = new LongAdder();
+
+        // Same bucket as a deadline 5 seconds out, one revolution later
+        scheduler.schedule(Instant.ofEpochMilli(now + 5_000 + 4096_000L), fired::increment);
+        scheduler.advanceTo(now + 10_000);
+        assertThat(fired.sum()).isZero();
+        assertThat(scheduler.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() {
+        ExpiryScheduler scheduler = new ExpiryScheduler();
+        long now = System.currentTimeMillis();
+        LongAdder fired = new LongAdder();
+
+        scheduler.schedule(Instant.ofEpochMilli(now - 60_000), fired::increment);
+        scheduler.advanceTo(now + 1_000);
+        assertThat(fired.sum()).isEqualTo(1);
+    }
+
+    @Test
+    void entryAddedToTheBucketBeingDrainedFiresInTheSamePass() {
+        ExpiryScheduler scheduler = new ExpiryScheduler();
+        long now = System.currentTimeMillis() / 1_000 * 1_000; // on a tick boundary
+        LongAdder fired = new LongAdder();
+
+        // Lands in the bucket the wheel is draining, after the drain started
+        scheduler.schedule(Instant.ofEpochMilli(now + 1_000), () ->
+                scheduler.schedule(Instant.ofEpochMilli(now + 1_000), fired::increment));
+        scheduler.advanceTo(now + 1_000);
+
+        assertThat(fired.sum()).isEqualTo(1);
+        assertThat(scheduler.getPendingCount()).isZero();
+    }
+
+    @Test
+    void entriesScheduledWhileTheWheelTurnsAreNotStranded() throws Exception {
+        ExpiryScheduler scheduler = new ExpiryScheduler();
+        long start = System.currentTimeMillis();
+        AtomicLong clock = new AtomicLong(start);
+        AtomicBoolean done = new AtomicBoolean();
+        LongAdder fired = new LongAdder();
+        int entries = 200_000;
+
+        // Deadlines land on the tick the wheel is processing right now
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread producer = Thread.ofPlatform().start(() -> {
+            ready.countDown();
+            for (int i = 0; i < entries; i++) {
+                scheduler.schedule(Instant.ofEpochMilli(clock.get()), fired::increment);
+            }
+            done.set(true);
+        });
+        ready.await();
+        while (!done.get()) {
+            scheduler.advanceTo(clock.addAndGet(1_000));
+        }
+        producer.join();
+
+        scheduler.advanceTo(clock.addAndGet(2_000));
+        assertThat(fired.sum()).isEqualTo(entries);
+        assertThat(scheduler.getPendingCount()).isZero();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.fileshare.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdAllocatorTest {
+
+    @Test
+    void concurrentCallersGetDistinctIds() throws Exception {
+        IdAllocator allocator = new IdAllocator(3, 8);
+        Set<String> claimed = ConcurrentHashMap.newKeySet();
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    for (int n = 0; n < 2000; n++) {
+                        allocator.allocate(claimed::size, claimed::add);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+
+        assertThat(claimed).hasSize(16000);
+    }
+
+    @Test
+    void idsGrowWithOccupancy() {
+        IdAllocator allocator = new IdAllocator(3, 8);
+
+        assertThat(allocator.allocate(() -> 0, id -> true)).hasSize(3);
+        // 62^3 / 2 in use - the next length keeps collisions rare
+        assertThat(allocator.allocate(() -> 120_000, id -> true)).hasSize(4);
+    }
+
+    @Test
+    void onlyEligibleIdsAreDrawn() {
+        IdAllocator allocator = new IdAllocator(4, 8);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(allocator.allocate(() -> 0, id -> id.charAt(0) == 'A', id -> true)).startsWith("A");
+        }
+    }
+
+    @Test
+    void givesUpWhenNothingCanBeClaimed() {
+        IdAllocator allocator = new IdAllocator(3, 4);
+
+        assertThatThrownBy(() -> allocator.allocate(() -> 0, id -> false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("ID space exhausted");
+    }
+}
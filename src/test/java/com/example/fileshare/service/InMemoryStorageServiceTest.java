@@ -0,0 +1,216 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.cluster.ClusterRing;
+import com.example.fileshare.config.FileshareProperties;
+import com.example.fileshare.model.EncryptedFile;
+import com.example.fileshare.model.FileState;
+import com.example.fileshare.storage.CiphertextBlob;
+import com.example.fileshare.storage.HeapCiphertextStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryStorageServiceTest {
+
+    private static final int THREADS = 16;
+
+    private final FileshareProperties properties = new FileshareProperties();
+    private final SegmentWorkers segmentWorkers = new SegmentWorkers(properties);
+    private final StorageBudget storageBudget = new StorageBudget(properties);
+    private final InMemoryStorageService storage = storageService(storageBudget);
+
+    @AfterEach
+    void tearDown() {
+        storage.clearAll();
+        segmentWorkers.close();
+    }
+
+    @Test
+    void concurrentDownloadsClaimTheFileOnce() throws Exception {
+        String fileId = storage.storeFile("file.bin", new ByteArrayInputStream(randomBytes(1024)));
+        EncryptedFile file = storage.retrieveFile(fileId);
+
+        CountDownLatch start = new CountDownLatch(1);
+        int winners = 0;
+        try (ExecutorService pool = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return storage.claimDownload(file);
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                winners += result.get() ? 1 : 0;
+            }
+        }
+
+        assertThat(winners).isEqualTo(1);
+        assertThatThrownBy(() -> storage.retrieveFile(fileId)).hasMessage("File not found");
+    }
+
+    @Test
+    void deleteWipesOnceAndCreditsTheBudget() throws Exception {
+        String fileId = storage.storeFile("file.bin", new ByteArrayInputStream(randomBytes(1024)));
+        EncryptedFile file = storage.retrieveFile(fileId);
+        assertThat(storageBudget.getUsedBytes()).isPositive();
+
+        assertThat(storage.deleteFile(fileId)).isTrue();
+        assertThat(storage.deleteFile(fileId)).isFalse();
+        assertThat(file.getState()).isEqualTo(FileState.DELETED);
+        assertThat(storageBudget.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void storedFileDecryptsToItsContent() throws Exception {
+        byte[] payload = randomBytes(3 * EncryptionService.SEGMENT_SIZE + 17);
+
+        EncryptedFile file = storage.retrieveFile(storage.storeFile("file.bin", new ByteArrayInputStream(payload)));
+
+        assertThat(file.getSize()).isEqualTo(payload.length);
+        assertThat(storage.decryptFile(file)).isEqualTo(payload);
+    }
+
+    @Test
+    void storedFileStreamsToItsContent() throws Exception {
+        byte[] payload = randomBytes(3 * EncryptionService.SEGMENT_SIZE + 17);
+        EncryptedFile file = storage.retrieveFile(storage.storeFile("file.bin", new ByteArrayInputStream(payload)));
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        storage.decryptTo(file, streamed);
+
+        assertThat(streamed.toByteArray()).isEqualTo(payload);
+    }
+
+    @Test
+    void restoreOverBudgetIsRefused() {
+        StorageBudget smallBudget = StorageBudgetTest.budget(3 * 1024, null);
+        InMemoryStorageService restoring = storageService(smallBudget);
+
+        assertThat(restoring.restoreFile("AAAAAA", restoredFile(2 * 1024))).isTrue();
+        assertThat(restoring.restoreFile("BBBBBB", restoredFile(2 * 1024))).isFalse();
+        assertThat(smallBudget.getUsedBytes()).isEqualTo(2 * 1024);
+        assertThat(restoring.getFileCount()).isEqualTo(1);
+        restoring.clearAll();
+    }
+
+    @Test
+    void keyIsHandedOutOnce() throws Exception {
+        String fileId = storage.storeFile("file.bin", new ByteArrayInputStream(randomBytes(1024)));
+
+        assertThat(storage.releaseKey(fileId).getKey()).isNotBlank();
+        assertThatThrownBy(() -> storage.releaseKey(fileId)).hasMessage("Key already released");
+    }
+
+    @Test
+    void keyIsNotReleasedUnderARunningStream() throws Exception {
+        byte[] payload = randomBytes(4 * EncryptionService.SEGMENT_SIZE);
+        String fileId = storage.storeFile("file.bin", new ByteArrayInputStream(payload));
+        EncryptedFile file = storage.retrieveFile(fileId);
+
+        // The client stalls on the first write while someone asks for the key
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        OutputStream slowClient = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] data, int offset, int length) {
+                writing.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.write(data, offset, length);
+            }
+        };
+
+        try (ExecutorService pool = Executors.newSingleThreadExecutor()) {
+            Future<?> stream = pool.submit(() -> {
+                storage.decryptTo(file, slowClient);
+                return null;
+            });
+            writing.await();
+            assertThatThrownBy(() -> storage.releaseKey(fileId)).hasMessage("File is being downloaded");
+            proceed.countDown();
+            stream.get();
+        }
+
+        assertThat(received.toByteArray()).isEqualTo(payload);
+        assertThat(storage.releaseKey(fileId).getKey()).isNotBlank();
+        assertThatThrownBy(() -> storage.decryptTo(file, OutputStream.nullOutputStream()))
+                .hasMessage("Key already released");
+    }
+
+    @Test
+    void rangeSpanningSegmentsDecrypts() throws Exception {
+        byte[] payload = randomBytes(3 * EncryptionService.SEGMENT_SIZE);
+        EncryptedFile file = storage.retrieveFile(storage.storeFile("file.bin", new ByteArrayInputStream(payload)));
+        long start = EncryptionService.SEGMENT_SIZE - 5;
+        long end = 2L * EncryptionService.SEGMENT_SIZE + 5;
+
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        storage.decryptRangeTo(file, start, end, range);
+
+        assertThat(range.toByteArray()).isEqualTo(Arrays.copyOfRange(payload, (int) start, (int) end));
+    }
+
+    private InMemoryStorageService storageService(StorageBudget budget) {
+        return new InMemoryStorageService(
+                new EncryptionService(properties),
+                new CompressionService(properties),
+                new DedupService(properties),
+                new HeapCiphertextStore(),
+                budget,
+                new ExpiryScheduler(),
+                new TrafficStats(),
+                new ClusterRing(properties),
+                segmentWorkers,
+                properties
+        );
+    }
+
+    private static EncryptedFile restoredFile(int ciphertextBytes) {
+        CiphertextBlob ciphertext = new HeapCiphertextStore().newBlob();
+        ciphertext.append(new byte[ciphertextBytes]);
+        ciphertext.seal();
+        Instant now = Instant.now();
+        return EncryptedFile.builder()
+                .originalFilename("file.bin")
+                .ciphertext(ciphertext)
+                .segmentSize(EncryptionService.SEGMENT_SIZE)
+                .encryptionKey(new byte[32])
+                .iv(new byte[12])
+                .size(ciphertextBytes - EncryptionService.SEGMENT_OVERHEAD)
+                .createdAt(now)
+                .expiresAt(now.plusSeconds(60))
+                .build();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        ThreadLocalRandom.current().nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.model.EncryptedFile;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedFileStoreTest {
+
+    @Test
+    void shardCountRoundsUpToAPowerOfTwo() {
+        assertThat(new ShardedFileStore(1).getShardCount()).isEqualTo(2);
+        assertThat(new ShardedFileStore(5).getShardCount()).isEqualTo(8);
+        assertThat(new ShardedFileStore(16).getShardCount()).isEqualTo(16);
+    }
+
+    @Test
+    void takenIdIsRefused() {
+        ShardedFileStore store = new ShardedFileStore(4);
+        EncryptedFile first = newFile();
+
+        assertThat(store.putIfAbsent("abc", first)).isTrue();
+        assertThat(store.putIfAbsent("abc", newFile())).isFalse();
+        assertThat(store.get("abc")).isSameAs(first);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void removeIsByIdentity() {
+        ShardedFileStore store = new ShardedFileStore(4);
+        EncryptedFile older = newFile();
+        EncryptedFile newer = newFile();
+        store.putIfAbsent("abc", older);
+        store.remove("abc", older);
+        store.putIfAbsent("abc", newer);
+
+        // A late delete of the old file must not take the reused ID with it
+        assertThat(store.remove("abc", older)).isFalse();
+        assertThat(store.get("abc")).isSameAs(newer);
+        assertThat(store.remove("abc", newer)).isTrue();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void everyFileIsInExactlyOneShard() {
+        ShardedFileStore store = new ShardedFileStore(8);
+        for (int i = 0; i < 1000; i++) {
+            store.putIfAbsent("id" + i, newFile());
+        }
+
+        Set<String> seen = new HashSet<>();
+        int total = 0;
+        for (int shard = 0; shard < store.getShardCount(); shard++) {
+            seen.addAll(store.shard(shard).keySet());
+            total += store.shard(shard).size();
+        }
+        assertThat(total).isEqualTo(1000);
+        assertThat(seen).hasSize(1000);
+
+        List<String> visited = new ArrayList<>();
+        store.forEach((id, file) -> visited.add(id));
+        assertThat(visited).hasSize(1000);
+    }
+
+    @RepeatedTest(20)
+    void exactlyOneConcurrentPutWins() throws Exception {
+        ShardedFileStore store = new ShardedFileStore(4);
+        CountDownLatch start = new CountDownLatch(1);
+        int winners = 0;
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(16)) {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                EncryptedFile file = newFile();
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return store.putIfAbsent("abc", file);
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                winners += result.get() ? 1 : 0;
+            }
+        }
+
+        assertThat(winners).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    private static EncryptedFile newFile() {
+        Instant now = Instant.now();
+        return EncryptedFile.builder()
+                .originalFilename("file.bin")
+                .createdAt(now)
+                .expiresAt(now.plusSeconds(60))
+                .build();
+    }
+}
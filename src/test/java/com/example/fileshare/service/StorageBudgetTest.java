@@ -0,0 +1,96 @@
+package com.example.fileshare.service;
+
+import com.example.fileshare.config.FileshareProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageBudgetTest {
+
+    @Test
+    void reservationsStopAtTheLimit() {
+        StorageBudget budget = budget(100, null);
+
+        assertThat(budget.reserve("a", 60)).isEqualTo(StorageBudget.Admission.ADMITTED);
+        assertThat(budget.reserve("b", 60)).isEqualTo(StorageBudget.Admission.NODE_FULL);
+        assertThat(budget.reserve("b", 40)).isEqualTo(StorageBudget.Admission.ADMITTED);
+        assertThat(budget.getHeadroomBytes()).isZero();
+
+        budget.cancel("a", 60);
+        assertThat(budget.getUsedBytes()).isEqualTo(40);
+        assertThat(budget.getReservedBytes()).isEqualTo(40);
+    }
+
+    @Test
+    void clientQuotaIsPerClient() {
+        StorageBudget budget = budget(1000, 50L);
+
+        assertThat(budget.reserve("a", 40)).isEqualTo(StorageBudget.Admission.ADMITTED);
+        assertThat(budget.reserve("a", 20)).isEqualTo(StorageBudget.Admission.CLIENT_QUOTA);
+        assertThat(budget.reserve("b", 20)).isEqualTo(StorageBudget.Admission.ADMITTED);
+
+        budget.cancel("a", 40);
+        assertThat(budget.reserve("a", 50)).isEqualTo(StorageBudget.Admission.ADMITTED);
+    }
+
+    @Test
+    void nodeFullReleasesTheClientQuota() {
+        StorageBudget budget = budget(30, 50L);
+
+        assertThat(budget.reserve("a", 40)).isEqualTo(StorageBudget.Admission.NODE_FULL);
+        assertThat(budget.reserve("a", 30)).isEqualTo(StorageBudget.Admission.ADMITTED);
+    }
+
+    @Test
+    void chargeStopsAtTheLimit() {
+        StorageBudget budget = budget(100, null);
+
+        assertThat(budget.charge(70)).isTrue();
+        assertThat(budget.charge(40)).isFalse();
+        assertThat(budget.getUsedBytes()).isEqualTo(70);
+        assertThat(budget.charge(30)).isTrue();
+        assertThat(budget.getHeadroomBytes()).isZero();
+    }
+
+    @Test
+    void concurrentChargesNeverOvershoot() throws Exception {
+        StorageBudget budget = budget(10_000, null);
+        LongAdder charged = new LongAdder();
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    for (int n = 0; n < 1000; n++) {
+                        if (budget.charge(7)) {
+                            charged.add(7);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+
+        assertThat(budget.getUsedBytes()).isEqualTo(charged.sum()).isLessThanOrEqualTo(10_000);
+        assertThat(budget.getHeadroomBytes()).isLessThan(7);
+    }
+
+    static StorageBudget budget(long maxBytes, Long perClientMaxBytes) {
+        FileshareProperties properties = new FileshareProperties();
+        properties.getBudget().setMaxBytes(DataSize.ofBytes(maxBytes));
+        if (perClientMaxBytes != null) {
+            properties.getBudget().setPerClientMaxBytes(DataSize.ofBytes(perClientMaxBytes));
+        }
+        return new StorageBudget(properties);
+    }
+}